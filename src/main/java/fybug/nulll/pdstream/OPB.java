@@ -0,0 +1,264 @@
+package fybug.nulll.pdstream;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+import static fybug.nulll.pdstream.OPC.BUFF_POOL_DIRECT;
+import static fybug.nulll.pdstream.OPC.BUFF_POOL_LOCAL;
+import static fybug.nulll.pdstream.OPC.BUFF_POOL_MAX;
+import static fybug.nulll.pdstream.OPC.BUFF_POOL_SHARED;
+
+/**
+ * <h2>PDStream 缓冲池.</h2>
+ * <p>
+ * 提供可重复使用的 {@code byte[]}，{@code char[]} 和 {@link ByteBuffer}
+ * 缓冲区按 2 的幂次分为多个大小，获取的缓冲区长度可能大于需要的长度
+ * 超过 {@link OPC#BUFF_POOL_MAX} 的缓冲区不会缓存
+ * <p>
+ * 归还的缓冲区优先缓存在当前线程中，超出 {@link OPC#BUFF_POOL_LOCAL} 后放入线程间共享的缓存
+ * 共享缓存超出 {@link OPC#BUFF_POOL_SHARED} 后丢弃
+ * <p>
+ * <b>归还后不可再使用该缓冲区，且同一个缓冲区只可归还一次</b>
+ *
+ * @author fybug
+ * @version 0.0.2
+ * @see OPC#BUFF_POOL_DIRECT
+ * @since PDStream 0.0.2
+ */
+public final
+class OPB {
+    // 缓存的大小范围
+    private static final int MIN_SHIFT = 6, MAX_SHIFT = 20;
+    private static final int CLASSES = MAX_SHIFT - MIN_SHIFT + 1;
+    /**
+     * 最大的缓存分类大小
+     *
+     * @since OPB 0.0.2
+     */
+    public static final int MAX_SIZE = 1 << MAX_SHIFT;
+
+    // 统计
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder OUTSTANDING = new LongAdder();
+
+    private static final Pool<byte[]> BYTES = new Pool<>(byte[]::new, v -> v.length, 1);
+    private static final Pool<char[]> CHARS = new Pool<>(char[]::new, v -> v.length, 2);
+    private static final Pool<ByteBuffer> BUFFERS =
+            new Pool<>(v -> BUFF_POOL_DIRECT ? ByteBuffer.allocateDirect(v) : ByteBuffer.allocate(v),
+                       ByteBuffer::capacity, 1);
+
+    private
+    OPB() {}
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取字节缓冲区
+     *
+     * @param size 需要的长度
+     *
+     * @return 长度不小于 {@code size} 的数组，内容未清空
+     */
+    @NotNull
+    public static
+    byte[] bytes(int size) { return BYTES.take(size); }
+
+    /**
+     * 获取字符缓冲区
+     *
+     * @param size 需要的长度
+     *
+     * @return 长度不小于 {@code size} 的数组，内容未清空
+     */
+    @NotNull
+    public static
+    char[] chars(int size) { return CHARS.take(size); }
+
+    /**
+     * 获取 {@link ByteBuffer}
+     * <p>
+     * {@link OPC#BUFF_POOL_DIRECT} 为 {@code true} 时新建的缓冲区使用直接内存
+     *
+     * @param size 需要的容量
+     *
+     * @return 容量不小于 {@code size} 且已清空的缓冲区
+     */
+    @NotNull
+    public static
+    ByteBuffer buffer(int size) { return BUFFERS.take(size).clear(); }
+
+    /*-------------------------------------*/
+
+    /**
+     * 归还字节缓冲区
+     *
+     * @param buff 从 {@link #bytes(int)} 获取的数组
+     */
+    public static
+    void free(@NotNull byte[] buff) { BYTES.give(buff); }
+
+    /**
+     * 归还字符缓冲区
+     *
+     * @param buff 从 {@link #chars(int)} 获取的数组
+     */
+    public static
+    void free(@NotNull char[] buff) { CHARS.give(buff); }
+
+    /**
+     * 归还 {@link ByteBuffer}
+     *
+     * @param buff 从 {@link #buffer(int)} 获取的缓冲区
+     */
+    public static
+    void free(@NotNull ByteBuffer buff) { BUFFERS.give(buff); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 从缓存中获取的次数
+     *
+     * @return 命中次数
+     */
+    public static
+    long hits() { return HITS.sum(); }
+
+    /**
+     * 新建缓冲区的次数
+     * <p>
+     * 包括超过缓存大小的缓冲区
+     *
+     * @return 未命中次数
+     */
+    public static
+    long misses() { return MISSES.sum(); }
+
+    /**
+     * 已获取未归还的可缓存缓冲区的字节数
+     * <p>
+     * 字符数组每个字符按两个字节计算
+     *
+     * @return 字节数
+     */
+    public static
+    long outstanding() { return OUTSTANDING.sum(); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    // 获取对应大小的分类，无法缓存时返回 -1
+    private static
+    int sizeClass(int size) {
+        if (size > Math.min(BUFF_POOL_MAX, 1 << MAX_SHIFT))
+            return -1;
+        var shift = size <= 1 << MIN_SHIFT ? MIN_SHIFT : 32 - Integer.numberOfLeadingZeros(size - 1);
+        return shift - MIN_SHIFT;
+    }
+
+    // 是否为缓冲池中的大小
+    private static
+    boolean shaped(int len)
+    { return Integer.bitCount(len) == 1 && len >= 1 << MIN_SHIFT && len <= 1 << MAX_SHIFT; }
+
+    /**
+     * <h2>单一类型的缓冲池.</h2>
+     *
+     * @param <T> 缓冲区类型
+     *
+     * @author fybug
+     * @version 0.0.1
+     * @since OPB 0.0.1
+     */
+    private static final
+    class Pool<T> {
+        /** 创建缓冲区 */
+        private final IntFunction<T> creat;
+        /** 获取缓冲区长度 */
+        private final ToIntFunction<T> length;
+        /** 每单位长度的字节数 */
+        private final int unit;
+
+        /** 线程中的缓存 */
+        private final ThreadLocal<ArrayDeque<T>[]> local;
+        /** 共享的缓存 */
+        private final ConcurrentLinkedQueue<T>[] shared;
+        /** 共享缓存的数量 */
+        private final AtomicInteger[] sharedsize;
+
+        @SuppressWarnings( "unchecked" )
+        private
+        Pool(IntFunction<T> creat, ToIntFunction<T> length, int unit) {
+            this.creat = creat;
+            this.length = length;
+            this.unit = unit;
+
+            local = ThreadLocal.withInitial(() -> (ArrayDeque<T>[]) new ArrayDeque<?>[CLASSES]);
+            shared = (ConcurrentLinkedQueue<T>[]) new ConcurrentLinkedQueue<?>[CLASSES];
+            sharedsize = new AtomicInteger[CLASSES];
+            for ( int i = 0; i < CLASSES; i++ ){
+                shared[i] = new ConcurrentLinkedQueue<>();
+                sharedsize[i] = new AtomicInteger();
+            }
+        }
+
+        /*----------------------------------------------------------------------------------------*/
+
+        T take(int size) {
+            var c = sizeClass(Math.max(0, size));
+            T buff = null;
+
+            if (c >= 0) {
+                var deque = local.get()[c];
+                if (deque != null)
+                    buff = deque.pollLast();
+                if (buff == null && (buff = shared[c].poll()) != null)
+                    sharedsize[c].decrementAndGet();
+            }
+
+            if (buff == null) {
+                MISSES.increment();
+                // 不缓存的大小按需创建
+                buff = creat.apply(c < 0 ? size : 1 << (c + MIN_SHIFT));
+            } else
+                HITS.increment();
+
+            var len = length.applyAsInt(buff);
+            if (shaped(len))
+                OUTSTANDING.add((long) len * unit);
+            return buff;
+        }
+
+        void give(T buff) {
+            var len = length.applyAsInt(buff);
+            // 非缓冲池中的大小
+            if (!shaped(len))
+                return;
+            OUTSTANDING.add(-(long) len * unit);
+
+            var c = sizeClass(len);
+            if (c < 0)
+                return;
+
+            // 放入线程缓存
+            var locals = local.get();
+            if (locals[c] == null)
+                locals[c] = new ArrayDeque<>();
+            if (locals[c].size() < BUFF_POOL_LOCAL) {
+                locals[c].addLast(buff);
+                return;
+            }
+
+            // 放入共享缓存
+            if (sharedsize[c].incrementAndGet() <= BUFF_POOL_SHARED)
+                shared[c].offer(buff);
+            else
+                sharedsize[c].decrementAndGet();
+        }
+    }
+}
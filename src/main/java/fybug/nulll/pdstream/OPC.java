@@ -27,8 +27,32 @@ class OPC {
     // 转化过程中的缓冲区大小
     public static volatile int CHAR_READ_BUFF = 1024;
     public static volatile int BYTE_READ_BUFF = 255;
+    // 流之间传输数据时的缓冲区大小
+    public static volatile int TRANSFER_BUFF = 64 * 1024;
     /** 字节转字符的编码 */
     public static volatile Charset CHARSET = StandardCharsets.UTF_8;
+    // 异步工具共享线程池的线程数，在首次使用共享线程池前修改有效
+    public static volatile int ASYNC_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    /** 共享线程池包括任务阻塞时补充的线程在内的最大线程数，在首次使用共享线程池前修改有效 */
+    public static volatile int ASYNC_POOL_MAX = ASYNC_POOL_SIZE + 64;
+    // 异步任务队列每次占用线程时最多处理的任务数
+    public static volatile int ASYNC_BATCH_SIZE = 128;
+    // 缓冲池缓存的最大缓冲区大小，最大为 1M
+    public static volatile int BUFF_POOL_MAX = 64 * 1024;
+    // 缓冲池每个线程中每种大小缓存的数量
+    public static volatile int BUFF_POOL_LOCAL = 4;
+    // 缓冲池线程间共享的每种大小缓存的数量
+    public static volatile int BUFF_POOL_SHARED = 32;
+    /** 缓冲池是否使用直接内存创建 ByteBuffer */
+    public static volatile boolean BUFF_POOL_DIRECT = false;
+    /** 流水线中每个阶段的队列容量 */
+    public static volatile int PIPELINE_QUEUE = 16;
+    /** 异步输出作为订阅者时同时请求的数据数 */
+    public static volatile int SUBSCRIBER_WINDOW = 16;
+    /** 内存映射时每段的最大大小 */
+    public static volatile long MAP_CHUNK_SIZE = Integer.MAX_VALUE;
+    /** 溢出文件每个分段的大小 */
+    public static volatile long SPILL_SEGMENT_SIZE = 64 * 1024 * 1024;
 
     // 空流
     public final static BufferedReader EMPY_BUFF_READ = new BufferedReader(Reader.nullReader());
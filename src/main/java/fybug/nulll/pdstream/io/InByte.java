@@ -4,8 +4,10 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import fybug.nulll.pdstream.InOf;
+import fybug.nulll.pdstream.OPB;
 import fybug.nulll.pdstream.OPC;
 
 import static fybug.nulll.pdstream.OPC.BYTE_DEFAULT_DATA;
@@ -15,9 +17,12 @@ import static fybug.nulll.pdstream.OPC.EMPY_BUFF_INPUT;
 /**
  * <h2>字节读取器.</h2>
  * 操作对象为 {@link InputStream}
+ * <p>
+ * 可指定数据大小的提示，读取时按照提示的大小分配数组并直接读入，提示超过 {@link OPB#MAX_SIZE} 时从该大小开始倍增
+ * 实际数据与提示不一致时仍可正确读取
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.2
  * @see OPC#BYTE_EMPTY_DATA
  * @since io 0.0.1
  */
@@ -25,6 +30,8 @@ public
 class InByte implements InOf<InputStream, byte[]> {
     /** 操作目标 */
     @NotNull private InputStream target;
+    /** 剩余数据大小的提示，小于 1 时为未知 */
+    private long hint = -1;
 
     /*--------------------------------------------------------------------------------------------*/
 
@@ -40,6 +47,20 @@ class InByte implements InOf<InputStream, byte[]> {
     public
     InByte(@NotNull InputStream inputStream) {target = inputStream;}
 
+    /**
+     * 初始化操作器
+     *
+     * @param inputStream 初始操作目标
+     * @param size        剩余数据大小的提示，小于 1 时为未知
+     *
+     * @since InByte 0.0.2
+     */
+    public
+    InByte(@NotNull InputStream inputStream, long size) {
+        target = inputStream;
+        hint = size;
+    }
+
     /*--------------------------------------------------------------------------------------------*/
 
     @Override
@@ -57,7 +78,7 @@ class InByte implements InOf<InputStream, byte[]> {
 
         try {
             synchronized ( this ){
-                bytes = original().readNBytes(size);
+                bytes = hint > 0 ? readHint(size) : original().readNBytes(size);
             }
         } catch ( IOException e ) {
             return BYTE_EMPTY_DATA;
@@ -68,6 +89,40 @@ class InByte implements InOf<InputStream, byte[]> {
         return bytes;
     }
 
+    // 按照大小提示读取
+    private
+    byte[] readHint(int size) throws IOException {
+        var len = (int) Math.min(size, hint);
+        // 提示过大时不一次分配，读满后倍增
+        var bytes = new byte[Math.min(len, OPB.MAX_SIZE)];
+        var readsize = 0;
+        while( true ){
+            readsize += original().readNBytes(bytes, readsize, bytes.length - readsize);
+            if (readsize < bytes.length || bytes.length == len)
+                break;
+            bytes = Arrays.copyOf(bytes, (int) Math.min(len, (long) bytes.length << 1));
+        }
+        hint -= readsize;
+
+        // 数据比提示的少
+        if (readsize < len)
+            return Arrays.copyOf(bytes, readsize);
+        if (readsize == size)
+            return bytes;
+
+        // 检查是否还有数据
+        var next = original().read();
+        if (next < 0)
+            return bytes;
+
+        var more = original().readNBytes(size - readsize - 1);
+        var echo = Arrays.copyOf(bytes, readsize + 1 + more.length);
+        echo[readsize] = (byte) next;
+        System.arraycopy(more, 0, echo, readsize + 1, more.length);
+        hint = -1;
+        return echo;
+    }
+
     /*--------------------------------------------------------------------------------------------*/
 
     @NotNull
@@ -76,6 +131,7 @@ class InByte implements InOf<InputStream, byte[]> {
     InByte bin(@NotNull InputStream operator) {
         synchronized ( this ){
             target = operator;
+            hint = -1;
         }
         return this;
     }
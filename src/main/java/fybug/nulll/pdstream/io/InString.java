@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.io.Reader;
 
 import fybug.nulll.pdstream.InOf;
+import fybug.nulll.pdstream.OPB;
 import fybug.nulll.pdstream.OPC;
 
 import static fybug.nulll.pdstream.OPC.CHAR_DEFAULT_DATA;
@@ -18,9 +19,10 @@ import static fybug.nulll.pdstream.OPC.EMPY_BUFF_READ;
  * 操作对象为 {@link Reader}
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.2
  * @see OPC#CHAR_EMPTY_DATA
  * @see OPC#CHAR_READ_BUFF
+ * @see OPB
  * @since io 0.0.1
  */
 public
@@ -55,7 +57,7 @@ class InString implements InOf<Reader, String> {
 
         var builder = new StringBuilder();
         var mark = 0;
-        var buff = new char[CHAR_READ_BUFF];
+        var buff = OPB.chars(CHAR_READ_BUFF);
 
         try {
             while( original().ready() ){
@@ -73,6 +75,8 @@ class InString implements InOf<Reader, String> {
             }
         } catch ( IOException e ) {
             return CHAR_EMPTY_DATA;
+        } finally {
+            OPB.free(buff);
         }
 
         if (builder.length() == 0)
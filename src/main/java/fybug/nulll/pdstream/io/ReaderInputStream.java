@@ -1,70 +1,200 @@
 package fybug.nulll.pdstream.io;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Objects;
 
+import fybug.nulll.pdstream.OPB;
 import fybug.nulll.pdstream.OPC;
-import fybug.nulll.pdstream.strem.IOT;
 
-import static fybug.nulll.pdstream.OPC.BYTE_READ_BUFF;
+import static fybug.nulll.pdstream.OPC.CHARSET;
+import static fybug.nulll.pdstream.OPC.CHAR_READ_BUFF;
 
 /**
  * <h2>字符转字节读取流.</h2>
  * <p>
- * 使用 {@link ByteBuffer} 作为转换中转区
- * 读取一段长度为 {@link OPC#BYTE_READ_BUFF} 的字符，并转化为字节载入缓冲区中
+ * 使用可重复使用的 {@link CharBuffer} 和 {@link ByteBuffer} 作为转换中转区
+ * 每次读取一段长度为 {@link OPC#CHAR_READ_BUFF} 的字符，使用 {@link CharsetEncoder} 按照 {@link OPC#CHARSET}
+ * 编码后载入缓冲区中，读取过程中不会再分配内存
  * <p>
- * 在每次读取的时候都会检查缓冲区中是否有数据
+ * 缓冲区从 {@link OPB} 中获取，读取结束或关闭时归还
+ * <p>
+ * 在每次读取的时候都会检查缓冲区中是否有数据，读取发生异常时视为读取结束
+ * 批量读取时已读到数据且 {@link Reader#ready()} 为 {@code false} 则直接返回，不等待填满
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.3
  * @since io 0.0.2
  */
 public
 class ReaderInputStream extends InputStream {
-    private InString reader;
-    private ByteBuffer nowbuff = ByteBuffer.wrap(new byte[0]);
+    /** 读取目标 */
+    private final Reader reader;
+    /** 编码器 */
+    private final CharsetEncoder encoder;
+    /** 未编码的字符 */
+    private CharBuffer inbuff;
+    /** 编码后的字节 */
+    private ByteBuffer outbuff;
+
+    /** 字符是否读取完成 */
+    private boolean eof = false;
+    /** 是否编码完成 */
+    private boolean finish = false;
 
     /*-------------------------------------------------------------------------------------------*/
 
     public
-    ReaderInputStream(@NotNull Reader reader)
-    { this.reader = new InString(IOT.toBuffRead(reader)); }
+    ReaderInputStream(@NotNull Reader reader) { this(reader, CHARSET); }
+
+    public
+    ReaderInputStream(@NotNull Reader reader, @NotNull Charset charset) {
+        this.reader = reader;
+        encoder = charset.newEncoder()
+                         .onMalformedInput(CodingErrorAction.REPLACE)
+                         .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        var size = Math.max(16, CHAR_READ_BUFF);
+        inbuff = CharBuffer.wrap(OPB.chars(size)).flip();
+        outbuff = ByteBuffer.wrap(OPB.bytes((int) Math.ceil(size * encoder.maxBytesPerChar())))
+                            .flip();
+    }
 
     /*-------------------------------------------------------------------------------------------*/
 
     @Override
     public
     int read() {
-        if (canread())
-            return nowbuff.get();
-        return -1;
+        synchronized ( this ){
+            if (canread())
+                return outbuff.get() & 0xFF;
+            return -1;
+        }
+    }
+
+    @Override
+    public
+    int read(@NotNull byte[] b, int off, int len) {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0)
+            return 0;
+
+        synchronized ( this ){
+            var mark = 0;
+            // 已读到数据且读取器没有就绪时直接返回，避免阻塞
+            while( mark < len && (mark == 0 || outbuff.hasRemaining() || ready()) && canread() ){
+                var size = Math.min(len - mark, outbuff.remaining());
+                outbuff.get(b, off + mark, size);
+                mark += size;
+            }
+            return mark == 0 ? -1 : mark;
+        }
+    }
+
+    @Override
+    public
+    int available() {
+        synchronized ( this ){
+            return outbuff.remaining();
+        }
     }
 
+    @Override
+    public
+    long transferTo(@NotNull OutputStream out) throws IOException {
+        synchronized ( this ){
+            long size = 0;
+            while( canread() ){
+                var len = outbuff.remaining();
+                out.write(outbuff.array(), outbuff.arrayOffset() + outbuff.position(), len);
+                outbuff.position(outbuff.limit());
+                size += len;
+            }
+            return size;
+        }
+    }
+
+    /*-------------------------------------------------------------------------------------------*/
+
+    // 检查缓冲区，没有数据时读取并编码下一段字符
     private
     boolean canread() {
-        if (nowbuff == null)
-            return false;
-        if (!nowbuff.hasRemaining()) {
-            var chars = reader.read(BYTE_READ_BUFF);
-
-            // 读取失败
-            if (chars == null || chars.length() == 0)
+        while( !outbuff.hasRemaining() ){
+            if (finish) {
+                release();
                 return false;
+            }
+            outbuff.clear();
+
+            // 读取字符
+            if (!eof) {
+                inbuff.compact();
+                try {
+                    var size = reader.read(inbuff.array(), inbuff.arrayOffset() + inbuff.position(),
+                                           inbuff.remaining());
+                    if (size < 0)
+                        eof = true;
+                    else
+                        inbuff.position(inbuff.position() + size);
+                } catch ( IOException e ) {
+                    eof = true;
+                }
+                inbuff.flip();
+            }
 
-            nowbuff = ByteBuffer.wrap(chars.getBytes());
+            // 编码
+            var result = encoder.encode(inbuff, outbuff, eof);
+            if (eof && result.isUnderflow() && encoder.flush(outbuff).isUnderflow())
+                finish = true;
+            outbuff.flip();
         }
         return true;
     }
 
+    // 是否可以不阻塞地读取下一段字符
+    private
+    boolean ready() {
+        if (eof)
+            return true;
+        try {
+            return reader.ready();
+        } catch ( IOException e ) {
+            return false;
+        }
+    }
+
+    // 归还缓冲区
+    private
+    void release() {
+        if (outbuff.capacity() == 0)
+            return;
+        OPB.free(inbuff.array());
+        OPB.free(outbuff.array());
+        inbuff = CharBuffer.allocate(0);
+        outbuff = ByteBuffer.allocate(0);
+    }
+
     /*-------------------------------------------------------------------------------------------*/
 
     @Override
     public
     void close() {
-        reader.close();
-        nowbuff = null;
+        synchronized ( this ){
+            eof = finish = true;
+            release();
+        }
+
+        try {
+            reader.close();
+        } catch ( IOException ignored ) {
+        }
     }
 }
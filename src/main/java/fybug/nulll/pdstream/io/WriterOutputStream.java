@@ -1,31 +1,66 @@
 package fybug.nulll.pdstream.io;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Objects;
+
+import fybug.nulll.pdstream.OPB;
+import fybug.nulll.pdstream.OPC;
 
 import static fybug.nulll.pdstream.OPC.CHARSET;
+import static fybug.nulll.pdstream.OPC.CHAR_READ_BUFF;
 
 /**
  * <h2>字节转字符输出流.</h2>
  * <p>
- * 使用 {@link ByteArrayOutputStream} 作为缓冲区，将所有数据缓存到缓冲区内
- * 在 {@link #flush()} 的时候全部输出
+ * 使用 {@link CharsetDecoder} 将写入的字节按照 {@link OPC#CHAR_READ_BUFF} 大小分段解码后直接写入 {@link Writer}
+ * 不完整的多字节字符会保留到下次写入时继续解码，在 {@link #close()} 时才会作为错误字符输出
+ * <p>
+ * 单字节写入会缓存到缓冲区满或 {@link #flush()} 时再解码
+ * <p>
+ * 缓冲区从 {@link OPB} 中获取，关闭时归还，关闭后的写入会被忽略
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.3
  * @since io 0.0.2
  */
 public
 class WriterOutputStream extends OutputStream {
-    private OutString stream;
-    private ByteArrayOutputStream buff = new ByteArrayOutputStream();
+    /** 写入目标 */
+    private final Writer writer;
+    /** 解码器 */
+    private final CharsetDecoder decoder;
+    /** 未解码的字节 */
+    private ByteBuffer inbuff;
+    /** 解码后的字符 */
+    private CharBuffer outbuff;
+    /** 是否已关闭 */
+    private boolean close = false;
 
     /*-------------------------------------------------------------------------------------------*/
 
     public
-    WriterOutputStream(@NotNull Writer writer) { stream = new OutString(writer); }
+    WriterOutputStream(@NotNull Writer writer) { this(writer, CHARSET); }
+
+    public
+    WriterOutputStream(@NotNull Writer writer, @NotNull Charset charset) {
+        this.writer = writer;
+        decoder = charset.newDecoder()
+                         .onMalformedInput(CodingErrorAction.REPLACE)
+                         .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        var size = Math.max(16, CHAR_READ_BUFF);
+        inbuff = ByteBuffer.wrap(OPB.bytes(size));
+        outbuff = CharBuffer.wrap(OPB.chars(size));
+    }
 
     /*-------------------------------------------------------------------------------------------*/
 
@@ -33,27 +68,103 @@ class WriterOutputStream extends OutputStream {
     public
     void write(int b) {
         synchronized ( this ){
-            buff.write(b);
+            if (close)
+                return;
+            inbuff.put((byte) b);
+            if (!inbuff.hasRemaining())
+                decode(false);
+        }
+    }
+
+    @Override
+    public
+    void write(@NotNull byte[] b, int off, int len) {
+        Objects.checkFromIndexSize(off, len, b.length);
+
+        synchronized ( this ){
+            if (close)
+                return;
+            while( len > 0 ){
+                var size = Math.min(len, inbuff.remaining());
+                inbuff.put(b, off, size);
+                off += size;
+                len -= size;
+
+                decode(false);
+            }
         }
     }
 
     /*-------------------------------------------------------------------------------------------*/
 
+    // 解码缓冲区中的数据并写入，不完整的字符会保留在缓冲区中
+    private
+    void decode(boolean end) {
+        inbuff.flip();
+        try {
+            CoderResult result;
+            do {
+                result = decoder.decode(inbuff, outbuff, end);
+                if (result.isOverflow())
+                    writeOut();
+            } while( result.isOverflow() );
+
+            if (end) {
+                while( decoder.flush(outbuff).isOverflow() )
+                    writeOut();
+                decoder.reset();
+            }
+
+            writeOut();
+        } catch ( IOException ignored ) {
+        } finally {
+            inbuff.compact();
+        }
+    }
+
+    // 写入解码后的字符
+    private
+    void writeOut() throws IOException {
+        if (outbuff.position() == 0)
+            return;
+        writer.write(outbuff.array(), 0, outbuff.position());
+        outbuff.clear();
+    }
+
+    /*-------------------------------------------------------------------------------------------*/
+
     @Override
     public
     void flush() {
-        byte[] bs;
         synchronized ( this ){
-            bs = buff.toByteArray();
-            buff = new ByteArrayOutputStream();
+            if (!close)
+                decode(false);
+        }
+
+        try {
+            writer.flush();
+        } catch ( IOException ignored ) {
         }
-        stream.writeFlush(new String(bs, CHARSET));
     }
 
     @Override
     public
     void close() {
-        flush();
-        stream.close();
+        synchronized ( this ){
+            if (!close) {
+                decode(true);
+                close = true;
+                // 归还缓冲区
+                OPB.free(inbuff.array());
+                OPB.free(outbuff.array());
+                inbuff = ByteBuffer.allocate(0);
+                outbuff = CharBuffer.allocate(0);
+            }
+        }
+
+        try {
+            writer.close();
+        } catch ( IOException ignored ) {
+        }
     }
 }
@@ -6,19 +6,27 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import fybug.nulll.pdstream.OPC;
 import fybug.nulll.pdstream.strem.io.uilt.AsnycIn;
 import fybug.nulll.pdstream.strem.io.uilt.AsnycOut;
 import fybug.nulll.pdstream.strem.io.uilt.SyncIn;
+import fybug.nulll.pdstream.strem.io.uilt.SyncMap;
 import fybug.nulll.pdstream.strem.io.uilt.SyncOut;
 
 import static fybug.nulll.pdstream.OPC.EMPY_BUFF_INPUT;
@@ -27,6 +35,7 @@ import static fybug.nulll.pdstream.OPC.EMPY_BUFF_READ;
 import static fybug.nulll.pdstream.OPC.EMPY_BUFF_WRITER;
 import static java.nio.file.StandardOpenOption.APPEND;
 import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
 import static java.nio.file.StandardOpenOption.WRITE;
 
 /**
@@ -75,6 +84,9 @@ class IOT {
 
     /**
      * 获取操作器构造工具
+     * <p>
+     * 会记录文件的大小，读取时按照该大小一次分配
+     * 默认文件系统中的文件使用 {@link FileInputStream} 读取，可直接传输到文件中
      *
      * @param path 要读取的路径
      *
@@ -84,14 +96,60 @@ class IOT {
     public static
     In R(@NotNull Path path) {
         InputStream stream;
+        long size = -1;
 
         try {
-            stream = Files.newInputStream(path);
+            stream = path.getFileSystem() == FileSystems.getDefault()
+                     ? new FileInputStream(path.toFile()) : Files.newInputStream(path);
+            try {
+                size = Files.size(path);
+            } catch ( IOException ignored ) {
+            }
         } catch ( IOException e ) {
             stream = EMPY_BUFF_INPUT;
         }
 
-        return R(stream);
+        return new In(stream, size);
+    }
+
+    /*-------------------------------------------------*/
+
+    /**
+     * 获取内存映射操作器
+     *
+     * @param file 要读取的文件
+     *
+     * @return 内存映射读取工具
+     *
+     * @since IOT 0.0.2
+     */
+    @NotNull
+    public static
+    SyncMap RM(@NotNull File file) { return RM(file.toPath()); }
+
+    /**
+     * 获取内存映射操作器
+     * <p>
+     * 文件无法打开时读取会失败
+     *
+     * @param path 要读取的路径
+     *
+     * @return 内存映射读取工具
+     *
+     * @since IOT 0.0.2
+     */
+    @NotNull
+    public static
+    SyncMap RM(@NotNull Path path) {
+        Closeable stream;
+
+        try {
+            stream = FileChannel.open(path, READ);
+        } catch ( IOException | UnsupportedOperationException e ) {
+            stream = EMPY_BUFF_INPUT;
+        }
+
+        return new SyncMap(new ArrayList<>(List.of(stream)));
     }
 
     /*-------------------------------------------------*/
@@ -223,6 +281,8 @@ class IOT {
 
     /**
      * 获取操作器构造工具
+     * <p>
+     * 默认文件系统中的文件使用 {@link FileOutputStream} 追加写入
      *
      * @param path 要写入的路径
      *
@@ -234,7 +294,9 @@ class IOT {
         OutputStream stream;
 
         try {
-            stream = Files.newOutputStream(path, WRITE, APPEND, CREATE);
+            stream = path.getFileSystem() == FileSystems.getDefault()
+                     ? new FileOutputStream(path.toFile(), true)
+                     : Files.newOutputStream(path, WRITE, APPEND, CREATE);
         } catch ( IOException e ) {
             stream = EMPY_BUFF_OUTPUT;
         }
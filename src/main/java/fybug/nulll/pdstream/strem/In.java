@@ -1,11 +1,15 @@
 package fybug.nulll.pdstream.strem;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.Closeable;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import fybug.nulll.pdstream.strem.io.uilt.AsnycIn;
 import fybug.nulll.pdstream.strem.io.uilt.SyncIn;
+import fybug.nulll.pdstream.strem.io.uilt.SyncMap;
 
 /**
  * <h2>读取操作器构造工具.</h2>
@@ -13,19 +17,57 @@ import fybug.nulll.pdstream.strem.io.uilt.SyncIn;
  * 用于生成不同实现的读取器
  * 可使用 {@code append()} 绑定多个流交由读取器读取
  * 生成操作器时绑定的流会被转移到操作器中并清空
+ * <p>
+ * 可使用 {@link #append(InputStream, long)} 同时记录流的数据大小，读取时按照该大小一次分配
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.2
  * @since stream 0.0.1
  */
 public
 class In extends OperatorFactory<In, Reader, InputStream> {
+    /** 流的数据大小 */
+    private Map<Closeable, Long> sizearray = new IdentityHashMap<>();
+
+    /*--------------------------------------------------------------------------------------------*/
+
     In(InputStream inputStream) { append(inputStream); }
 
+    In(InputStream inputStream, long size) { append(inputStream, size); }
+
     In(Reader reader) { append(reader); }
 
     /*--------------------------------------------------------------------------------------------*/
 
+    /**
+     * 记录流及其数据大小
+     *
+     * @param inputStream 要读取的流
+     * @param size        流中剩余数据大小的提示，小于 1 时为未知
+     *
+     * @return this
+     *
+     * @since In 0.0.2
+     */
+    @NotNull
+    public
+    In append(@NotNull InputStream inputStream, long size) {
+        append(inputStream);
+        if (size > 0)
+            sizearray.put(inputStream, size);
+        return this;
+    }
+
+    /** 获取流的数据大小并清空 */
+    private
+    Map<Closeable, Long> getSizes() {
+        var sizes = sizearray;
+        sizearray = new IdentityHashMap<>();
+        return sizes;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
     /**
      * 使用阻塞式处理工具
      *
@@ -33,7 +75,7 @@ class In extends OperatorFactory<In, Reader, InputStream> {
      */
     @NotNull
     public
-    SyncIn sync() { return new SyncIn(getStreams()); }
+    SyncIn sync() { return new SyncIn(getStreams(), getSizes()); }
 
     /**
      * 使用异步处理工具
@@ -42,5 +84,40 @@ class In extends OperatorFactory<In, Reader, InputStream> {
      */
     @NotNull
     public
-    AsnycIn async() { return new AsnycIn(getStreams()); }
+    AsnycIn async() { return new AsnycIn(getStreams(), getSizes()); }
+
+    /**
+     * 将全部数据传输到输出中
+     * <p>
+     * 使用当前流集合和输出的流集合进行传输，完成后关闭两边的流
+     *
+     * @param out 输出操作器构造工具
+     *
+     * @return 传输的字节数
+     *
+     * @see SyncIn#transfer(SyncOut)
+     * @since In 0.0.2
+     */
+    public
+    long transfer(@NotNull Out out) {
+        try ( var in = sync(); var o = out.sync() ) {
+            return in.transfer(o);
+        }
+    }
+
+    /**
+     * 使用内存映射读取工具
+     * <p>
+     * 只能映射 {@link java.io.FileInputStream}，否则读取会失败
+     *
+     * @return 包含当前流集合的内存映射读取工具
+     *
+     * @since In 0.0.2
+     */
+    @NotNull
+    public
+    SyncMap map() {
+        getSizes();
+        return new SyncMap(getStreams());
+    }
 }
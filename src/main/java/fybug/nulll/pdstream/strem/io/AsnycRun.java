@@ -1,60 +1,326 @@
 package fybug.nulll.pdstream.strem.io;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.function.Consumer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import fybug.nulll.pdstream.OPC;
+
+import static fybug.nulll.pdstream.OPC.ASYNC_BATCH_SIZE;
+import static fybug.nulll.pdstream.OPC.ASYNC_POOL_MAX;
+import static fybug.nulll.pdstream.OPC.ASYNC_POOL_SIZE;
 
 /**
  * <h2>异步任务工具.</h2>
  * <p>
- * 任务队列的运行使用线程池进行，可使用 {@link #threadPool(ExecutorService)} 修改线程池
+ * 任务队列默认运行在进程内共享的线程池 {@link #sharedPool()} 中，不会为每个实例创建线程
+ * 可使用 {@link #threadPool(ExecutorService)} 为单个实例指定线程池
+ * <p>
+ * 内部使用任务队列进行，同一实例的任务按添加顺序依次运行，关闭时会等待前面任务完成后关闭
  * <p>
- * 内部使用任务队列进行，关闭时会等待前面任务完成后关闭
+ * 可使用 {@link #partition(int)} 开启分区，带有键的任务按照键分配到多个任务队列中
+ * 同一个键的任务按添加顺序依次运行，不同分区的任务可同时运行，没有键的任务仍在默认的任务队列中运行
+ * 关闭时会等待所有分区中的任务完成
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.6
  * @see TaskLoop
+ * @see OPC#ASYNC_POOL_SIZE
  * @since io 0.0.1
  */
 public abstract
 class AsnycRun<T extends AsnycRun<?>> extends IOFiltrer<T> {
+    /** 共享线程池 */
+    private static volatile ExecutorService sharedpool;
     /** 当前任务对象 */
-    private TaskLoop looptask;
+    private final TaskLoop looptask = new TaskLoop(true);
+    /** 分区的任务队列 */
+    private volatile TaskLoop[] partitions = new TaskLoop[0];
+    /** 重新分区前还有任务的任务队列，关闭前需等待 */
+    private final List<TaskLoop> retired = new ArrayList<>();
+    // 关闭任务是否已添加
+    private final Object closelock = new Object();
+    private boolean loopclose = false;
 
     /*--------------------------------------------------------------------------------------------*/
 
     protected
-    AsnycRun() {threadPool(Executors.newSingleThreadExecutor());}
+    AsnycRun() {}
 
     /*--------------------------------------------------------------------------------------------*/
 
+    /**
+     * 获取共享线程池
+     * <p>
+     * 首次使用时按照 {@link OPC#ASYNC_POOL_SIZE} 和 {@link OPC#ASYNC_POOL_MAX} 创建
+     *
+     * @return 所有未指定线程池的异步工具共用的线程池
+     *
+     * @see #boundedPool(int, int)
+     */
+    @NotNull
+    public static
+    ExecutorService sharedPool() {
+        var pool = sharedpool;
+        if (pool == null) {
+            synchronized ( AsnycRun.class ){
+                pool = sharedpool;
+                if (pool == null)
+                    sharedpool = pool = boundedPool(ASYNC_POOL_SIZE, ASYNC_POOL_MAX);
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * 创建线程数受限的线程池
+     * <p>
+     * 任务使用 {@link #runAll(int, int, boolean, IntConsumer)} 或在任务队列中阻塞时，线程池会补充线程
+     * 包括补充的线程在内最多有 {@code max} 个线程，达到后不再补充，阻塞的任务直接占用当前线程
+     * 线程均为守护线程，空闲一段时间后回收补充的线程
+     *
+     * @param size 线程数
+     * @param max  最大线程数，小于线程数时按线程数计算
+     *
+     * @return 先进先出的线程池
+     *
+     * @since AsnycRun 0.0.6
+     */
+    @NotNull
+    public static
+    ForkJoinPool boundedPool(int size, int max) {
+        var parallelism = Math.max(1, size);
+        // 达到最大线程数后不补充线程，也不拒绝阻塞
+        return new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true, 0,
+                                Math.max(parallelism, max), 1, pool -> true, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 替换共享线程池
+     * <p>
+     * 已在运行的任务队列会在当前批次完成后转移到新的线程池，旧的线程池不会被关闭
+     *
+     * @param service 新的共享线程池
+     */
+    public static
+    void sharedPool(@NotNull ExecutorService service) {
+        synchronized ( AsnycRun.class ){
+            sharedpool = service;
+        }
+    }
+
+    /**
+     * 在共享线程池中并行运行多个任务
+     * <p>
+     * 最多使用 {@code concurrency} 个线程，当前线程也会参与运行，全部完成后返回
+     * 每个线程依次领取未运行的任务，线程池无法运行时由当前线程完成剩余的任务
+     * <p>
+     * 会阻塞的任务，如读取流，在 {@link ForkJoinPool} 中使用 {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)} 运行
+     * 线程池可在任务阻塞时补充线程，避免占满线程池
+     *
+     * @param count       任务数量
+     * @param concurrency 最多同时运行的任务数
+     * @param blocking    任务是否会阻塞
+     * @param task        任务，传入任务的序号
+     *
+     * @throws RuntimeException 任务中出现的第一个异常，会在全部任务完成后抛出
+     * @since AsnycRun 0.0.4
+     */
+    public static
+    void runAll(int count, int concurrency, boolean blocking, @NotNull IntConsumer task) {
+        if (count <= 0)
+            return;
+
+        var next = new AtomicInteger();
+        var done = new CountDownLatch(count);
+        var error = new AtomicReference<Throwable>();
+        Runnable work = () -> {
+            int i;
+            while( (i = next.getAndIncrement()) < count ){
+                try {
+                    if (blocking)
+                        block(task, i);
+                    else
+                        task.accept(i);
+                } catch ( Throwable e ) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+
+        var pool = sharedPool();
+        for ( int i = Math.min(count, Math.max(1, concurrency)) - 1; i > 0; i-- ) {
+            try {
+                pool.execute(work);
+            } catch ( RejectedExecutionException e ) {
+                break;
+            }
+        }
+        work.run();
+
+        // 等待其他线程中的任务
+        var interrupted = false;
+        while( true ){
+            try {
+                done.await();
+                break;
+            } catch ( InterruptedException e ) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        var e = error.get();
+        if (e instanceof RuntimeException)
+            throw (RuntimeException) e;
+        else if (e instanceof Error)
+            throw (Error) e;
+        else if (e != null)
+            throw new RuntimeException(e);
+    }
+
+    // 作为阻塞任务运行
+    private static
+    void block(IntConsumer task, int index) { block(() -> task.accept(index)); }
+
+    /**
+     * 作为阻塞任务运行
+     * <p>
+     * 在 {@link ForkJoinPool} 中运行时使用 {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)}，线程池可补充线程
+     * 在其他线程中直接运行
+     *
+     * @param task 会阻塞的任务
+     *
+     * @since AsnycRun 0.0.6
+     */
+    static
+    void block(@NotNull Runnable task) {
+        var blocker = new ForkJoinPool.ManagedBlocker() {
+            private boolean done = false;
+
+            @Override
+            public
+            boolean block() {
+                if (!done) {
+                    done = true;
+                    task.run();
+                }
+                return true;
+            }
+
+            @Override
+            public
+            boolean isReleasable() { return done; }
+        };
+
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            blocker.block();
+        }
+    }
+
     /**
      * 指定运行用线程池
+     * <p>
+     * 当前正在处理的任务批次完成后，后续任务会在新的线程池中运行
      *
-     * @param service 后续运行用的线程池
+     * @param service 后续运行用的线程池，为 {@code null} 时使用共享线程池
      *
      * @return this
      */
     public
-    T threadPool(@NotNull ExecutorService service) {
-        if (isClose())
-            return (T) this;
+    T threadPool(@Nullable ExecutorService service) {
+        synchronized ( closelock ){
+            if (!isClose()) {
+                looptask.executor = service;
+                for ( var v : partitions )
+                    v.executor = service;
+                for ( var v : retired )
+                    v.executor = service;
+            }
+        }
+        return (T) this;
+    }
 
-        // 停止当前任务处理
-        if (looptask != null) {
-            looptask.close(v -> {});
-            looptask = new TaskLoop(looptask.awaitEnd());
-        } else
-            looptask = new TaskLoop();
+    /**
+     * 指定分区数量
+     * <p>
+     * 带有键的任务按照键的 {@link Object#hashCode()} 分配到对应的分区中
+     * 应在添加任务前设置，修改后已添加的任务仍在原本的分区中运行，不再保证与之后任务的顺序
+     * 关闭时同样会等待原本的分区中的任务完成
+     *
+     * @param count 分区数量，小于 {@code 1} 时关闭分区，所有任务都在默认的任务队列中运行
+     *
+     * @return this
+     *
+     * @since AsnycRun 0.0.5
+     */
+    public
+    T partition(int count) {
+        synchronized ( closelock ){
+            if (!isClose()) {
+                var parts = new TaskLoop[Math.max(0, count)];
+                for ( int i = 0; i < parts.length; i++ ) {
+                    parts[i] = new TaskLoop(true);
+                    parts[i].executor = looptask.executor;
+                }
+                // 原本的分区中已添加的任务完成后移除
+                for ( var v : partitions ) {
+                    retired.add(v);
+                    v.appendRun(() -> retire(v));
+                }
+                partitions = parts;
+            }
+        }
+        return (T) this;
+    }
 
-        service.submit(looptask::run);
+    // 重新分区前的任务队列已完成
+    private
+    void retire(TaskLoop loop) {
+        synchronized ( closelock ){
+            retired.remove(loop);
+        }
+    }
 
-        return (T) this;
+    /**
+     * 获取分区数量
+     *
+     * @return 分区数量，未开启时为 {@code 0}
+     *
+     * @since AsnycRun 0.0.5
+     */
+    public
+    int partitions() { return partitions.length; }
+
+    // 获取键对应的任务队列
+    private
+    TaskLoop loopOf(Object key) {
+        var parts = partitions;
+        if (key == null || parts.length == 0)
+            return looptask;
+
+        var h = key.hashCode();
+        return parts[Math.floorMod(h ^ (h >>> 16), parts.length)];
     }
 
     /*----------------------------*/
@@ -62,121 +328,282 @@ class AsnycRun<T extends AsnycRun<?>> extends IOFiltrer<T> {
     /**
      * <h2>任务处理模块.</h2>
      * <p>
-     * 不断处理内部任务直到被停止，可使用 {@link #awaitEnd()} 等待内部任务停止
-     * 等待完成后会返回剩余的任务列表
+     * 有任务时将自身提交到线程池中运行，每次最多处理 {@link OPC#ASYNC_BATCH_SIZE} 个任务后让出线程
+     * 同一时间只会有一个线程在处理，以此保证任务的顺序
+     * <p>
+     * 任务队列为无锁的多生产者单消费者链表，添加任务只需一次原子交换
+     * 处理线程一次取出当前所有已链接的任务，队列为空时才会释放线程
+     * 相邻的同组 {@link MergeRun} 会合并运行
+     * <p>
+     * 任务会阻塞时，如写入流，每批任务都作为阻塞任务运行，较慢的流不会占满共享线程池
      *
      * @author fybug
-     * @version 0.0.1
+     * @version 0.0.5
+     * @see Pipeline
      * @since AsnycRun 0.0.1
      */
-    private static
-    class TaskLoop {
-        /** 是否停止 */
-        private volatile boolean stop = false;
-        /** 是否可以检查关闭状态 */
-        private boolean canCheckEnd = false;
-
-        /** 任务队列 */
-        private final LinkedList<Consumer<TaskLoop>> runlist;
-        // 队列管理
-        private final Lock LIST_lock = new ReentrantLock();
-        private final Condition noemp = LIST_lock.newCondition();
-
-        // 任务管理
-        private final Lock TASK_lock = new ReentrantLock();
-        private final Condition taskend = TASK_lock.newCondition();
-
-        /*----------------------------------------------------------------------------------------*/
+    static
+    class TaskLoop implements Runnable {
+        /** 运行用线程池，为 {@code null} 时使用共享线程池 */
+        private volatile Executor executor;
+        /** 任务是否会阻塞 */
+        private final boolean blocking;
+        /** 是否已提交到线程池 */
+        private final AtomicBoolean queued = new AtomicBoolean(false);
 
-        private
-        TaskLoop() { this(new LinkedList<>()); }
-
-        private
-        TaskLoop(LinkedList<Consumer<TaskLoop>> list) {runlist = list;}
+        // 任务队列，头部只由处理线程访问
+        private Node head = new Node(null);
+        private final AtomicReference<Node> tail = new AtomicReference<>(head);
+        // 任务计数
+        private final LongAdder added = new LongAdder();
+        private volatile long ran = 0;
 
         /*----------------------------------------------------------------------------------------*/
 
-        private
+        /**
+         * 构造任务队列
+         *
+         * @param blocking 任务是否会阻塞
+         */
+        TaskLoop(boolean blocking) { this.blocking = blocking; }
+
+        @Override
+        public
         void run() {
-            // 处理任务
-            while( !stop )
-                pollRun().accept(this);
+            try {
+                if (blocking)
+                    block(this::drain);
+                else
+                    drain();
+            } finally {
+                queued.set(false);
+            }
+
+            // 还有剩余的任务
+            if (head.next != null)
+                schedule();
         }
 
-        // 关闭后将结束任务处理，并通知等待返回剩余的任务
+        // 处理一批任务
         private
-        void close(Consumer<TaskLoop> runnable) {
-            // 追加关闭任务
-            appendRun(v -> {
-                /* 停止任务 */
-                TASK_lock.lock();
-                stop = true;
+        void drain() {
+            var node = head;
+            for ( int i = Math.max(1, ASYNC_BATCH_SIZE); i > 0; i-- ) {
+                var next = node.next;
+                if (next == null)
+                    break;
+                // 出队
+                var run = next.run;
+                next.run = null;
+                head = node = next;
+                ran = ran + 1;
 
-                runnable.accept(this);
+                List<MergeRun> merge = null;
+                var group = run instanceof MergeRun ? ((MergeRun) run).mergeGroup() : null;
+                // 取出相邻的同组任务
+                while( group != null && i > 1 ) {
+                    next = node.next;
+                    if (next == null || !(next.run instanceof MergeRun) ||
+                        !group.equals(((MergeRun) next.run).mergeGroup()))
+                        break;
 
-                // 通知已结束
-                taskend.signalAll();
-                TASK_lock.unlock();
-            });
-            canCheckEnd = true;
+                    if (merge == null) {
+                        merge = new ArrayList<>();
+                        merge.add((MergeRun) run);
+                    }
+                    merge.add((MergeRun) next.run);
+                    next.run = null;
+                    head = node = next;
+                    ran = ran + 1;
+                    i--;
+                }
+
+                try {
+                    if (merge == null)
+                        run.run();
+                    else
+                        merge.get(0).runMerge(merge);
+                } catch ( Throwable ignored ) {
+                }
+            }
         }
 
-        // 等待结束，返回剩余任务队列
+        // 提交到线程池
         private
-        LinkedList<Consumer<TaskLoop>> awaitEnd() {
-            if (!canCheckEnd)
-                return new LinkedList<>();
-            TASK_lock.lock();
+        void schedule() {
+            if (!queued.compareAndSet(false, true))
+                return;
+
+            var ex = executor;
             try {
-                // 未结束
-                if (!stop)
-                    taskend.await();
-            } catch ( InterruptedException e ) {
-                TASK_lock.unlock();
+                (ex == null ? sharedPool() : ex).execute(this);
+            } catch ( RejectedExecutionException e ) {
+                // 指定的线程池不可用
+                if (ex == null)
+                    throw e;
+                executor = null;
+                sharedPool().execute(this);
             }
-            return new LinkedList<>(runlist);
         }
 
         /*----------------------------------------------------------------------------------------*/
 
         // 添加任务
-        private
-        void appendRun(Consumer<TaskLoop> run) {
-            LIST_lock.lock();
-            runlist.add(run);
-            // 通知处理队列
-            noemp.signal();
-            LIST_lock.unlock();
+        void appendRun(Runnable run) {
+            var node = new Node(run);
+            added.increment();
+            // 链接到尾部后再提交，处理线程必定能看到该任务
+            tail.getAndSet(node).next = node;
+            schedule();
         }
 
-        // 获取当前任务
+        // 未运行的任务数
         private
-        Consumer<TaskLoop> pollRun() {
-            Consumer<TaskLoop> c;
+        long depth() { return Math.max(0, added.sum() - ran); }
 
-            try {
-                LIST_lock.lock();
-                // 获取
-                while( (c = runlist.poll()) == null )
-                    // 等待任务
-                    noemp.await();
-                return c;
-            } catch ( Exception ignored ) {
-                return v -> {};
-            } finally {
-                LIST_lock.unlock();
-            }
+        /** 任务节点 */
+        private static final
+        class Node {
+            private Runnable run;
+            private volatile Node next;
+
+            private
+            Node(Runnable run) { this.run = run; }
         }
     }
 
+    /**
+     * <h2>可合并的任务.</h2>
+     * <p>
+     * 处理线程取出该任务时，会将队列中紧随其后的同组任务一同取出，并交由第一个任务的 {@link #runMerge(List)} 运行
+     *
+     * @author fybug
+     * @version 0.0.1
+     * @since AsnycRun 0.0.3
+     */
+    protected
+    interface MergeRun extends Runnable {
+        /**
+         * 获取合并分组
+         *
+         * @return 同一分组的相邻任务可合并，为 {@code null} 时不合并
+         */
+        @Nullable
+        Object mergeGroup();
+
+        /**
+         * 合并运行
+         *
+         * @param runs 合并的任务，按照添加的顺序排列
+         */
+        void runMerge(@NotNull List<MergeRun> runs);
+    }
+
     /*--------------------------------------------------------------------------------------------*/
 
-    /** 添加任务 */
+    /**
+     * 添加任务
+     *
+     * @return 是否已添加，关闭后返回 {@code false}
+     */
+    protected
+    boolean appendRun(Runnable run) { return appendRun(null, run); }
+
+    /**
+     * 添加带有键的任务
+     * <p>
+     * 同一个键的任务按添加顺序依次运行
+     *
+     * @param key 任务的键，为 {@code null} 或未开启分区时在默认的任务队列中运行
+     * @param run 任务
+     *
+     * @return 是否已添加，关闭后返回 {@code false}
+     *
+     * @see #partition(int)
+     * @since AsnycRun 0.0.5
+     */
     protected
-    void appendRun(Runnable run) {
+    boolean appendRun(@Nullable Object key, Runnable run) {
         if (isClose())
-            return;
-        looptask.appendRun(v -> run.run());
+            return false;
+        loopOf(key).appendRun(run);
+        return true;
+    }
+
+    /**
+     * 添加已接受的任务
+     * <p>
+     * 用于在关闭前已接受，但在关闭后才交给处理线程的任务，关闭任务添加后不可再添加
+     *
+     * @return 是否已添加，关闭任务已添加时返回 {@code false}
+     *
+     * @since AsnycRun 0.0.4
+     */
+    protected
+    boolean appendAccepted(Runnable run) { return appendAccepted(null, run); }
+
+    /**
+     * 添加带有键的已接受的任务
+     *
+     * @param key 任务的键
+     * @param run 任务
+     *
+     * @return 是否已添加，关闭任务已添加时返回 {@code false}
+     *
+     * @see #appendAccepted(Runnable)
+     * @see #appendRun(Object, Runnable)
+     * @since AsnycRun 0.0.5
+     */
+    protected
+    boolean appendAccepted(@Nullable Object key, Runnable run) {
+        synchronized ( closelock ){
+            if (loopclose)
+                return false;
+            loopOf(key).appendRun(run);
+            return true;
+        }
+    }
+
+    /**
+     * 添加带结果的任务
+     * <p>
+     * 返回的 {@link CompletableFuture} 直接在处理线程中完成
+     *
+     * @param call     任务
+     * @param closeval 已关闭无法添加任务时的结果
+     *
+     * @return 任务的结果
+     */
+    @NotNull
+    protected
+    <R> CompletableFuture<R> appendCall(@NotNull Supplier<R> call, @Nullable R closeval) {
+        var future = new CompletableFuture<R>();
+        if (!appendRun(() -> {
+            try {
+                future.complete(call.get());
+            } catch ( Throwable e ) {
+                future.completeExceptionally(e);
+            }
+        }))
+            future.complete(closeval);
+        return future;
+    }
+
+    /**
+     * 获取队列深度
+     *
+     * @return 已添加但还未运行的任务数，包括所有分区
+     */
+    public
+    long depth() {
+        var depth = looptask.depth();
+        for ( var v : partitions )
+            depth += v.depth();
+        synchronized ( closelock ){
+            for ( var v : retired )
+                depth += v.depth();
+        }
+        return depth;
     }
 
     /*--------------------------------------------------------------------------------------------*/
@@ -189,15 +616,44 @@ class AsnycRun<T extends AsnycRun<?>> extends IOFiltrer<T> {
             return;
         // 标记
         markClose();
-        looptask.close(v -> {
-            v.LIST_lock.lock();
-            v.runlist.clear();
-            v.LIST_lock.unlock();
+        closeLoop(() -> {
             super.close();
             close0();
         });
     }
 
+    /**
+     * 添加关闭任务
+     * <p>
+     * 可重写以在添加关闭任务前完成已接受的任务，最终需调用该方法
+     * 开启分区时会在所有分区中的任务完成后再添加到默认的任务队列中，包括重新分区前的分区
+     *
+     * @param close 关闭任务，会在之前的任务完成后运行
+     *
+     * @since AsnycRun 0.0.4
+     */
+    protected
+    void closeLoop(@NotNull Runnable close) {
+        synchronized ( closelock ){
+            loopclose = true;
+            var parts = new ArrayList<TaskLoop>(retired);
+            parts.addAll(List.of(partitions));
+            if (parts.isEmpty()) {
+                looptask.appendRun(close);
+                return;
+            }
+
+            // 等待所有分区
+            var remain = new AtomicInteger(parts.size());
+            Runnable barrier = () -> {
+                if (remain.decrementAndGet() == 0)
+                    looptask.appendRun(close);
+            };
+            for ( var v : parts )
+                v.appendRun(barrier);
+        }
+    }
+
     /** 关闭事件 */
     protected abstract
     void close0();
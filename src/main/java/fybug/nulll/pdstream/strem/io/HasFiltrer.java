@@ -1,12 +1,17 @@
 package fybug.nulll.pdstream.strem.io;
 import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import fybug.nulll.pdstream.OutOf;
@@ -15,17 +20,26 @@ import fybug.nulll.pdstream.io.OutString;
 import fybug.nulll.pdstream.io.ReaderInputStream;
 import fybug.nulll.pdstream.io.WriterOutputStream;
 
+import static fybug.nulll.pdstream.OPC.CHARSET;
+
 /**
  * <h2>带数据过滤器的操作器.</h2>
+ * <p>
+ * 处理流集合的操作默认互斥，针对单个流的操作可使用 {@link #runofShared(Function)} 同时进行
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.2
  * @since io 0.0.1
  */
 public abstract
 class HasFiltrer<O extends HasFiltrer<?>> extends IOFiltrer<O> {
     /** 流集合 */
     private final List<Closeable> streams;
+    /** 处理流的锁 */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // 转化后的输出流
+    private volatile List<OutOf<?, ?>> byteout;
+    private volatile List<OutOf<?, ?>> charout;
 
     /*--------------------------------------------------------------------------------------------*/
 
@@ -37,15 +51,44 @@ class HasFiltrer<O extends HasFiltrer<?>> extends IOFiltrer<O> {
     /**
      * 处理流
      * <p>
-     * 使用接口进行处理，内部使用锁
+     * 使用接口进行处理，内部使用独占的写锁
      *
      * @param function 处理流的代码
      */
-    public synchronized
+    public
     Object runofStream(Function<List<Closeable>, Object> function) {
-        if (isClose())
-            return null;
-        return function.apply(getStreams());
+        var l = lock.writeLock();
+        l.lock();
+        try {
+            if (isClose())
+                return null;
+            return function.apply(getStreams());
+        } finally {
+            l.unlock();
+        }
+    }
+
+    /**
+     * 共享地处理流
+     * <p>
+     * 使用共享的读锁，可与其他的共享处理同时运行，但不会与 {@link #runofStream(Function)} 同时运行
+     * 只可处理单个流，并需自行对该流同步，不可在其中调用 {@link #runofStream(Function)}
+     *
+     * @param function 处理流的代码
+     *
+     * @since HasFiltrer 0.0.2
+     */
+    public
+    Object runofShared(Function<List<Closeable>, Object> function) {
+        var l = lock.readLock();
+        l.lock();
+        try {
+            if (isClose())
+                return null;
+            return function.apply(getStreams());
+        } finally {
+            l.unlock();
+        }
     }
 
     /*----------------------------------*/
@@ -83,15 +126,107 @@ class HasFiltrer<O extends HasFiltrer<?>> extends IOFiltrer<O> {
      * @return param1
      */
     protected static
-    Stream<OutOf> unifiedOutput(Stream<Closeable> stream, boolean bytes) {
-        return (stream).map(v -> {
-            if (bytes && v instanceof OutString)
-                return new OutByte(new WriterOutputStream(((OutString) v).original()));
-            else if (!bytes && v instanceof OutByte)
-                return new OutString(new OutputStreamWriter(((OutByte) v).original()));
-
-            return (OutOf) v;
-        });
+    Stream<OutOf<?, ?>> unifiedOutput(Stream<Closeable> stream, boolean bytes)
+    { return (stream).map(v -> toOutput(v, bytes)); }
+
+    /**
+     * 获取统一类型的输出流
+     * <p>
+     * 转化后的流会被缓存并在关闭前重复使用，其中缓冲的数据需要使用 {@link #flushOutput(boolean)} 写入
+     * 刷新转化后的流只会将数据写入原本的流，不会刷新原本的流
+     *
+     * @param bytes 是否转化为字节流
+     *
+     * @return 与流集合顺序一致的输出流
+     */
+    protected
+    List<OutOf<?, ?>> unifiedOutput(boolean bytes) {
+        var outs = bytes ? byteout : charout;
+        if (outs == null) {
+            synchronized ( streams ){
+                outs = bytes ? byteout : charout;
+                if (outs == null) {
+                    outs = streams.stream()
+                                  .map(v -> toOutput(v, bytes))
+                                  .collect(Collectors.toUnmodifiableList());
+                    if (bytes)
+                        byteout = outs;
+                    else
+                        charout = outs;
+                }
+            }
+        }
+        return outs;
+    }
+
+    /**
+     * 刷新转化后的输出流
+     * <p>
+     * 将其中缓冲的数据写入原本的流，不会刷新原本的流
+     *
+     * @param bytes 是否为字节流
+     */
+    protected
+    void flushOutput(boolean bytes) {
+        var outs = bytes ? byteout : charout;
+        if (outs == null)
+            return;
+
+        for ( int i = 0; i < outs.size(); i++ ) {
+            if (outs.get(i) != streams.get(i))
+                outs.get(i).flush();
+        }
+    }
+
+    /**
+     * 刷新单个转化后的输出流
+     *
+     * @param bytes 是否为字节流
+     * @param index 流的位置
+     *
+     * @see #flushOutput(boolean)
+     * @since HasFiltrer 0.0.2
+     */
+    protected
+    void flushOutput(boolean bytes, int index) {
+        var outs = bytes ? byteout : charout;
+        if (outs != null && outs.get(index) != streams.get(index))
+            outs.get(index).flush();
+    }
+
+    // 转化输出流
+    private static
+    OutOf<?, ?> toOutput(Closeable v, boolean bytes) {
+        if (bytes && v instanceof OutString)
+            return new OutByte(new WriterOutputStream(new FilterWriter(((OutString) v).original()) {
+                // 由原本的流负责刷新
+                @Override
+                public
+                void flush() {}
+
+                // 由原本的流负责关闭
+                @Override
+                public
+                void close() {}
+            }));
+        else if (!bytes && v instanceof OutByte)
+            return new OutString(new OutputStreamWriter(new FilterOutputStream(((OutByte) v).original()) {
+                @Override
+                public
+                void write(byte[] b, int off, int len) throws IOException { out.write(b, off, len); }
+
+                // 由原本的流负责刷新
+                @Override
+                public
+                void flush() {}
+
+                // 由原本的流负责关闭
+                @Override
+                public
+                void close() {}
+            }, CHARSET));
+
+        return (OutOf<?, ?>) v;
     }
 
     /*----------------------------------*/
@@ -112,6 +247,9 @@ class HasFiltrer<O extends HasFiltrer<?>> extends IOFiltrer<O> {
         if (!isClose())
             runofStream(stream -> {
                 markClose();
+                // 先将转化后的流中缓冲的数据写入原本的流，并归还其缓冲区
+                closeOutput(byteout, stream);
+                closeOutput(charout, stream);
                 stream.forEach(v -> {
                     try {
                         v.close();
@@ -119,13 +257,28 @@ class HasFiltrer<O extends HasFiltrer<?>> extends IOFiltrer<O> {
                     }
                 });
                 // clear
-                streams.clear();
+                synchronized ( streams ){
+                    byteout = charout = null;
+                    streams.clear();
+                }
                 super.close();
 
                 return null;
             });
     }
 
+    // 关闭转化后的流，不会关闭原本的流
+    private static
+    void closeOutput(List<OutOf<?, ?>> outs, List<Closeable> streams) {
+        if (outs == null)
+            return;
+
+        for ( int i = 0; i < outs.size(); i++ ) {
+            if (outs.get(i) != streams.get(i))
+                outs.get(i).close();
+        }
+    }
+
     /*--------------------------------------------------------------------------------------------*/
 
     /** 检查读取结果 */
@@ -1,36 +1,44 @@
 package fybug.nulll.pdstream.strem.io;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+import fybug.nulll.pdstream.OPB;
+
+import static fybug.nulll.pdstream.OPC.TRANSFER_BUFF;
+
 /**
  * 带过滤的处理器
  * <p>
  * 可使用对应的过滤器对数据进行链式过滤
+ * 可使用 {@link StreamFiltrer} 对字节数据进行分段的流式过滤
+ * 可使用 {@link SplitFiltrer} 包装无状态的过滤器，将数据分段并行过滤
+ * <p>
+ * 过滤器链保存为不可变的数组，添加过滤器时复制并替换，过滤时只读取一次数组而不加锁
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.4
  * @since io 0.0.1
  */
-@SuppressWarnings( "All" )
 abstract
 class IOFiltrer<O extends IOFiltrer<?>> implements Closeable {
     /** 是否关闭 */
     private final AtomicBoolean isClose = new AtomicBoolean(false);
     // 数据过滤器
-    private final List<Function<byte[], byte[]>> byteF = new ArrayList<>();
-    private final List<Function<String, String>> charF = new ArrayList<>();
-    // 过滤器的锁
-    private ReadWriteLock bytelock = new ReentrantReadWriteLock();
-    private ReadWriteLock charlock = new ReentrantReadWriteLock();
+    private volatile Function<byte[], byte[]>[] byteF = emptyF();
+    private volatile Function<String, String>[] charF = emptyF();
+    private volatile StreamNode[] streamF = {};
+    /** 修改过滤器的锁 */
+    private final Object filtrerlock = new Object();
 
     /*--------------------------------------------------------------------------------------------*/
 
@@ -47,12 +55,12 @@ class IOFiltrer<O extends IOFiltrer<?>> implements Closeable {
      * @return this
      */
     @NotNull
+    @SuppressWarnings( "unchecked" )
     public
     O filtrerBytes(Function<byte[], byte[]>... function) {
-        if (!isClose()) {
-            bytelock.writeLock().lock();
-            Arrays.stream(function).filter(Objects::nonNull).forEach(byteF::add);
-            bytelock.writeLock().unlock();
+        synchronized ( filtrerlock ){
+            if (!isClose())
+                byteF = append(byteF, function);
         }
         return (O) this;
     }
@@ -65,36 +73,206 @@ class IOFiltrer<O extends IOFiltrer<?>> implements Closeable {
      * @return this
      */
     @NotNull
+    @SuppressWarnings( "unchecked" )
     public
     O filtrerChars(Function<String, String>... Function) {
-        if (!isClose()) {
-            charlock.writeLock().lock();
-            Arrays.stream(Function).filter(Objects::nonNull).forEach(charF::add);
-            charlock.writeLock().unlock();
+        synchronized ( filtrerlock ){
+            if (!isClose())
+                charF = append(charF, Function);
+        }
+        return (O) this;
+    }
+
+    /**
+     * 添加流式过滤器
+     * <p>
+     * 流式过滤器只作用于字节数据，并在最靠近流的一端运行
+     * 读取时在其他字节过滤器之前运行，输出时在之后运行，具体的运行时机请查看实现的文档
+     *
+     * @param filtrer 流式过滤器
+     *
+     * @return this
+     *
+     * @since IOFiltrer 0.0.2
+     */
+    @NotNull
+    @SuppressWarnings( "unchecked" )
+    public
+    O filtrerStream(StreamFiltrer... filtrer) {
+        synchronized ( filtrerlock ){
+            if (!isClose())
+                streamF = append(streamF, Arrays.stream(filtrer)
+                                                .filter(Objects::nonNull)
+                                                .map(StreamNode::new)
+                                                .toArray(StreamNode[]::new));
         }
         return (O) this;
     }
 
+    // 空的过滤器链
+    @SuppressWarnings( "unchecked" )
+    private static
+    <T> Function<T, T>[] emptyF() { return (Function<T, T>[]) new Function<?, ?>[0]; }
+
+    // 复制并追加过滤器
+    private static
+    <T> T[] append(T[] array, T[] add) {
+        var list = new ArrayList<>(Arrays.asList(array));
+        Arrays.stream(add).filter(Objects::nonNull).forEach(list::add);
+        return list.toArray(Arrays.copyOf(array, 0));
+    }
+
     /*----------------------------------*/
 
-    /** 使用过滤器进行数据过滤 */
+    /** 是否有流式过滤器 */
+    protected
+    boolean hasStreamF() { return streamF.length != 0; }
+
+    /**
+     * 使用流式过滤器处理一段数据
+     * <p>
+     * 处理结果分段传给接口，传入的缓冲区在接口返回后会被重复使用
+     * 过滤器没有读取的输入会保留到下一次调用时放在新的输入之前，数据流结尾时仍有未读取的输入会抛出 {@link IllegalStateException}
+     *
+     * @param in  输入的数据
+     * @param end 是否为数据流的结尾，结尾时会结束并重置所有过滤器
+     * @param out 接收处理结果的接口
+     */
     protected
-    byte[] byteF(byte[] bytes) {
-        bytelock.readLock().lock();
-        var stream = byteF.stream();
-        bytelock.readLock().unlock();
+    void streamF(ByteBuffer in, boolean end, Consumer<ByteBuffer> out) {
+        var filtrers = streamF;
+        var buffs = new ByteBuffer[filtrers.length];
+        try {
+            for ( int i = 0; i < buffs.length; i++ )
+                buffs[i] = OPB.buffer(TRANSFER_BUFF);
+            streamF(filtrers, buffs, 0, in, end, out);
+        } finally {
+            for ( var v : buffs ) {
+                if (v != null)
+                    OPB.free(v);
+            }
+        }
+    }
 
-        return stream.reduce(bytes, (a, b) -> b.apply(a), (a, b) -> null);
+    /**
+     * 使用流式过滤器处理一段数据
+     *
+     * @param data 输入的数据
+     * @param end  是否为数据流的结尾，结尾时会结束并重置所有过滤器
+     *
+     * @return 处理结果
+     */
+    protected
+    byte[] streamF(byte[] data, boolean end) {
+        var echo = new ByteArrayOutputStream();
+        streamF(ByteBuffer.wrap(data), end, v -> {
+            if (v.hasArray()) {
+                echo.write(v.array(), v.arrayOffset() + v.position(), v.remaining());
+                v.position(v.limit());
+            } else {
+                var b = new byte[v.remaining()];
+                v.get(b);
+                echo.writeBytes(b);
+            }
+        });
+        return echo.toByteArray();
     }
 
+    // 将数据传入指定的过滤器中
+    private static
+    void streamF(StreamNode[] filtrers, ByteBuffer[] buffs, int index, ByteBuffer in, boolean end,
+                 Consumer<ByteBuffer> out)
+    {
+        if (index == filtrers.length) {
+            if (in.hasRemaining())
+                out.accept(in);
+            return;
+        }
+
+        var node = filtrers[index];
+        var filtrer = node.filtrer;
+        var buff = buffs[index];
+        // 接上次未读取的输入
+        if (node.rest != null) {
+            in = ByteBuffer.allocate(node.rest.length + in.remaining()).put(node.rest).put(in).flip();
+            node.rest = null;
+        }
+
+        while( in.hasRemaining() ){
+            var mark = in.position();
+            filtrer.process(in, buff.clear());
+            buff.flip();
+            // 没有处理任何数据
+            if (mark == in.position() && !buff.hasRemaining())
+                break;
+            streamF(filtrers, buffs, index + 1, buff, false, out);
+        }
+
+        if (in.hasRemaining()) {
+            if (end) {
+                filtrer.reset();
+                throw new IllegalStateException("stream filtrer left " + in.remaining() + " bytes unread at the end");
+            }
+            // 保留到下一次调用
+            node.rest = new byte[in.remaining()];
+            in.get(node.rest);
+        }
+
+        if (end) {
+            boolean finish;
+            do {
+                finish = filtrer.finish(buff.clear());
+                buff.flip();
+                streamF(filtrers, buffs, index + 1, buff, false, out);
+            } while( !finish );
+            filtrer.reset();
+
+            // 结束之后的过滤器
+            streamF(filtrers, buffs, index + 1, buff.clear().flip(), true, out);
+        }
+    }
+
+    /*----------------------------------*/
+
+    /** 是否有字节过滤器 */
+    protected
+    boolean hasByteF() { return byteF.length != 0; }
+
+    /** 是否有字符过滤器 */
+    protected
+    boolean hasCharF() { return charF.length != 0; }
+
+    /** 获取当前的字节过滤器 */
+    protected
+    List<Function<byte[], byte[]>> byteFiltrers() { return List.of(byteF); }
+
+    /** 获取当前的字符过滤器 */
+    protected
+    List<Function<String, String>> charFiltrers() { return List.of(charF); }
+
+    /** 使用过滤器进行数据过滤 */
+    protected
+    byte[] byteF(byte[] bytes) { return filtrer(byteF, bytes); }
+
     /** 使用过滤器进行数据过滤 */
     protected
-    String charF(String string) {
-        charlock.readLock().lock();
-        var stream = charF.stream();
-        charlock.readLock().unlock();
+    String charF(String string) { return filtrer(charF, string); }
 
-        return stream.reduce(string, (a, b) -> b.apply(a), (a, b) -> null);
+    // 依次过滤，相邻的同类分段过滤器一同运行
+    private static
+    <T> T filtrer(Function<T, T>[] filtrers, T data) {
+        for ( int i = 0; i < filtrers.length; i++ ) {
+            var f = filtrers[i];
+            if (f instanceof SplitFiltrer) {
+                var j = i + 1;
+                while( j < filtrers.length && ((SplitFiltrer<?>) f).sameSplit(filtrers[j]) )
+                    j++;
+                data = SplitFiltrer.run(Arrays.asList(filtrers).subList(i, j), data);
+                i = j - 1;
+            } else
+                data = f.apply(data);
+        }
+        return data;
     }
 
     /*--------------------------------------------------------------------------------------------*/
@@ -102,12 +280,22 @@ class IOFiltrer<O extends IOFiltrer<?>> implements Closeable {
     @Override
     public
     void close() {
-        bytelock.writeLock().lock();
-        charlock.writeLock().lock();
-        byteF.clear();
-        charF.clear();
-        bytelock.writeLock().unlock();
-        charlock.writeLock().unlock();
+        synchronized ( filtrerlock ){
+            byteF = emptyF();
+            charF = emptyF();
+            streamF = new StreamNode[0];
+        }
+    }
+
+    /*---------------------*/
+
+    // 流式过滤器和它未读取的输入，只会在一个线程中按顺序访问
+    private static final
+    class StreamNode {
+        final StreamFiltrer filtrer;
+        byte[] rest;
+
+        StreamNode(StreamFiltrer filtrer) { this.filtrer = filtrer; }
     }
 
     /*---------------------*/
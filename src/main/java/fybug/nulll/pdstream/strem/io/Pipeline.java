@@ -0,0 +1,192 @@
+package fybug.nulll.pdstream.strem.io;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import fybug.nulll.pdstream.OPC;
+
+/**
+ * <h2>流水线.</h2>
+ * <p>
+ * 每个处理阶段使用单独的任务队列，运行在 {@link AsnycRun#sharedPool()} 中，不会创建线程
+ * 数据按照加入的顺序依次经过每个阶段，同一阶段的数据依次处理，不同阶段可同时处理不同的数据
+ * 最后一个阶段将结果传给接收接口，吞吐量取决于最慢的阶段，而不是所有阶段的耗时之和
+ * <p>
+ * 流水线中的数据达到每个阶段 {@link OPC#PIPELINE_QUEUE} 个时加入数据会阻塞，以此限制流水线中的数据量
+ * 任意阶段出现异常后之后的数据均会被丢弃，异常在 {@link #await()} 时抛出
+ * 使用 {@link #end(Runnable)} 结束后处理完剩余数据即结束
+ *
+ * @param <T> 数据类型
+ *
+ * @author fybug
+ * @version 0.0.2
+ * @since io 0.0.2
+ */
+public
+class Pipeline<T> {
+    /** 处理阶段 */
+    private final List<Function<T, T>> stages;
+    /** 各阶段的任务队列 */
+    private final AsnycRun.TaskLoop[] loops;
+    /** 接收结果 */
+    private final Consumer<T> sink;
+    /** 流水线中可容纳的数据 */
+    private final Semaphore space;
+
+    // 结束状态
+    private boolean ended = false;
+    private volatile Runnable after;
+    private final CountDownLatch done = new CountDownLatch(1);
+    /** 处理中出现的异常 */
+    private volatile Throwable error;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 构造流水线
+     *
+     * @param stages 处理阶段，没有阶段时仍会在任务队列中将数据传给接收接口
+     * @param sink   接收结果的接口，可以阻塞
+     */
+    public
+    Pipeline(@NotNull List<Function<T, T>> stages, @NotNull Consumer<T> sink) {
+        this.stages = List.copyOf(stages);
+        this.sink = sink;
+
+        loops = new AsnycRun.TaskLoop[Math.max(1, this.stages.size())];
+        for ( int i = 0; i < loops.length; i++ )
+            // 最后一个阶段运行接收接口，可能阻塞
+            loops[i] = new AsnycRun.TaskLoop(i == loops.length - 1);
+        space = new Semaphore(Math.max(1, OPC.PIPELINE_QUEUE) * loops.length);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 加入数据
+     * <p>
+     * 流水线已满时阻塞
+     *
+     * @param data 要处理的数据
+     *
+     * @return 是否已加入，已结束时返回 {@code false}
+     */
+    public
+    boolean offer(@Nullable T data) {
+        synchronized ( this ){
+            if (ended)
+                return false;
+            AsnycRun.block(space::acquireUninterruptibly);
+            loops[0].appendRun(() -> work(0, data));
+            return true;
+        }
+    }
+
+    /**
+     * 结束流水线
+     * <p>
+     * 不会阻塞，之前加入的数据处理完成后运行指定的任务
+     *
+     * @param after 全部数据处理完成后在最后一个阶段中运行，可为 {@code null}
+     *
+     * @return 是否为首次结束
+     */
+    public
+    boolean end(@Nullable Runnable after) {
+        synchronized ( this ){
+            if (ended)
+                return false;
+            ended = true;
+            this.after = after;
+            loops[0].appendRun(() -> finish(0));
+            return true;
+        }
+    }
+
+    /**
+     * 等待全部数据处理完成
+     * <p>
+     * 需要先调用 {@link #end(Runnable)}
+     *
+     * @throws RuntimeException 处理过程中出现的异常
+     */
+    public
+    void await() {
+        AsnycRun.block(() -> {
+            var interrupted = false;
+            while( true ){
+                try {
+                    done.await();
+                    break;
+                } catch ( InterruptedException e ) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        });
+
+        var e = error;
+        if (e instanceof RuntimeException)
+            throw (RuntimeException) e;
+        else if (e instanceof Error)
+            throw (Error) e;
+        else if (e != null)
+            throw new RuntimeException(e);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    // 处理一个数据
+    private
+    void work(int index, T data) {
+        var last = index == loops.length - 1;
+        var pass = false;
+
+        try {
+            // 出现异常后丢弃
+            if (error != null)
+                return;
+
+            var echo = index < stages.size() ? stages.get(index).apply(data) : data;
+            if (last)
+                sink.accept(echo);
+            else {
+                loops[index + 1].appendRun(() -> work(index + 1, echo));
+                pass = true;
+            }
+        } catch ( Throwable e ) {
+            if (error == null)
+                error = e;
+        } finally {
+            // 离开流水线
+            if (!pass)
+                space.release();
+        }
+    }
+
+    // 结束标记，在所有数据之后经过每个阶段
+    private
+    void finish(int index) {
+        if (index < loops.length - 1) {
+            loops[index + 1].appendRun(() -> finish(index + 1));
+            return;
+        }
+
+        try {
+            var a = after;
+            if (a != null)
+                a.run();
+        } catch ( Throwable e ) {
+            if (error == null)
+                error = e;
+        } finally {
+            done.countDown();
+        }
+    }
+}
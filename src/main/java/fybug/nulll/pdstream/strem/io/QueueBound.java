@@ -0,0 +1,397 @@
+package fybug.nulll.pdstream.strem.io;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <h2>任务队列容量限制.</h2>
+ * <p>
+ * 用于限制异步工具中排队的任务，可按 <b>任务数量</b> 或 <b>数据的字节数</b> 计算容量
+ * 超出容量时按照 {@link Policy} 处理新加入的任务
+ * <p>
+ * 任务开始运行时释放其占用的容量，单个超过容量的任务只会在队列为空时加入
+ *
+ * @author fybug
+ * @version 0.0.2
+ * @see Entry
+ * @since io 0.0.2
+ */
+public
+class QueueBound {
+    /**
+     * <h2>超出容量时的处理策略.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     * @since QueueBound 0.0.1
+     */
+    public
+    enum Policy {
+        /** 阻塞添加任务的线程直到有空余的容量 */
+        BLOCK,
+        /** 直接丢弃新的任务 */
+        FAIL,
+        /** 丢弃最早加入且未开始运行的任务 */
+        DROP_OLDEST,
+        /**
+         * 不阻塞，任务按顺序等待到有空余的容量后再加入
+         * 等待中的任务同样按照容量计算，最多等待一倍的容量，超出时丢弃新的任务
+         * 可使用 {@link #space()} 等待有空余的容量后再添加
+         */
+        FUTURE,
+        /**
+         * 使用 {@link Entry#spill()} 将任务的数据转移到磁盘后加入，转移后的任务不占用容量
+         * 无法转移时丢弃新的任务
+         *
+         * @see SpillFile
+         * @since QueueBound 0.0.2
+         */
+        SPILL
+    }
+
+    /** 容量 */
+    private final long capacity;
+    /** 是否按字节计算 */
+    private final boolean bytes;
+    /** 超出容量时的策略 */
+    private final Policy policy;
+
+    // 队列管理
+    private final Lock lock = new ReentrantLock();
+    private final Condition space = lock.newCondition();
+    /** 已占用的容量 */
+    private long size = 0;
+    /** 是否关闭 */
+    private boolean close = false;
+
+    /** 已加入未运行的任务 */
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    /** 等待加入的任务 */
+    private final ArrayDeque<Entry> waiting = new ArrayDeque<>();
+    /** 等待中的任务占用的容量 */
+    private long waitsize = 0;
+    /** 等待空余容量的回调 */
+    private final List<CompletableFuture<Void>> spacefuture = new ArrayList<>();
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 构造容量限制
+     *
+     * @param capacity 容量
+     * @param bytes    是否按字节计算，否则按任务数量计算
+     * @param policy   超出容量时的策略
+     */
+    public
+    QueueBound(long capacity, boolean bytes, @NotNull Policy policy) {
+        this.capacity = Math.max(1, capacity);
+        this.bytes = bytes;
+        this.policy = policy;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 加入任务
+     * <p>
+     * 被拒绝的任务会调用 {@link Entry#drop()}
+     *
+     * @param entry 要加入的任务
+     *
+     * @return 是否已加入或进入等待
+     */
+    public
+    boolean offer(@NotNull Entry entry) {
+        List<Entry> drops = new ArrayList<>(0);
+        var accept = true;
+        var spill = false;
+        entry.bound = this;
+        entry.weight = entry.size < 0 ? 0 : bytes ? entry.size : 1;
+
+        lock.lock();
+        try {
+            if (close)
+                accept = false;
+            else
+                switch ( policy ) {
+                    case BLOCK:
+                        while( !close && !fits(entry.weight) )
+                            space.awaitUninterruptibly();
+                        accept = !close;
+                        break;
+                    case FAIL:
+                        accept = fits(entry.weight);
+                        break;
+                    case DROP_OLDEST:
+                        // 丢弃最早的任务
+                        while( !fits(entry.weight) && !pending.isEmpty() ) {
+                            var e = pending.poll();
+                            e.state = Entry.DROP;
+                            size -= e.weight;
+                            drops.add(e);
+                        }
+                        break;
+                    case FUTURE:
+                        // 保持顺序
+                        if (!waiting.isEmpty() || !fits(entry.weight)) {
+                            // 等待的任务同样受容量限制
+                            accept = waitsize == 0 || waitsize + entry.weight <= capacity;
+                            if (accept) {
+                                entry.state = Entry.WAIT;
+                                waiting.add(entry);
+                                waitsize += entry.weight;
+                                return true;
+                            }
+                        }
+                        break;
+                    case SPILL:
+                        // 在锁外转移到磁盘后再加入
+                        spill = !fits(entry.weight);
+                        break;
+                }
+
+            if (accept && !spill)
+                accept = admit(entry);
+        } finally {
+            lock.unlock();
+        }
+
+        // 写入磁盘时不阻塞其他任务，转移后不占用容量
+        if (spill) {
+            accept = entry.spill();
+            if (accept) {
+                entry.weight = 0;
+                lock.lock();
+                try {
+                    accept = !close && admit(entry);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        drops.forEach(Entry::drop);
+        if (!accept)
+            entry.drop();
+        return accept;
+    }
+
+    /**
+     * 获取空余容量的回调
+     *
+     * @return 队列有空余容量时完成
+     */
+    @NotNull
+    public
+    CompletableFuture<Void> space() {
+        lock.lock();
+        try {
+            if (close || (size < capacity && waiting.isEmpty()))
+                return CompletableFuture.completedFuture(null);
+
+            var future = new CompletableFuture<Void>();
+            spacefuture.add(future);
+            return future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前占用的容量
+     *
+     * @return 按字节计算时为字节数，否则为任务数量
+     */
+    public
+    long size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    // 是否有足够的容量
+    private
+    boolean fits(long weight) { return size == 0 || size + weight <= capacity; }
+
+    // 计入容量并交给处理线程，需在锁内运行
+    private
+    boolean admit(Entry entry) {
+        entry.state = Entry.QUEUED;
+        size += entry.weight;
+        pending.add(entry);
+
+        if (entry.enqueue())
+            return true;
+
+        // 无法加入
+        pending.removeLastOccurrence(entry);
+        size -= entry.weight;
+        return false;
+    }
+
+    // 任务开始运行，释放容量
+    private
+    boolean start(Entry entry) {
+        List<Entry> drops = new ArrayList<>(0);
+        List<CompletableFuture<Void>> futures = null;
+
+        lock.lock();
+        try {
+            if (entry.state != Entry.QUEUED)
+                return false;
+
+            entry.state = Entry.RUN;
+            size -= entry.weight;
+            if (pending.peekFirst() == entry)
+                pending.pollFirst();
+            else
+                pending.removeFirstOccurrence(entry);
+
+            // 加入等待中的任务
+            while( !waiting.isEmpty() && fits(waiting.peekFirst().weight) ) {
+                var e = waiting.poll();
+                waitsize -= e.weight;
+                if (!admit(e))
+                    drops.add(e);
+            }
+
+            space.signalAll();
+            if (size < capacity && waiting.isEmpty() && !spacefuture.isEmpty()) {
+                futures = new ArrayList<>(spacefuture);
+                spacefuture.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        drops.forEach(Entry::drop);
+        if (futures != null)
+            futures.forEach(v -> v.complete(null));
+        return true;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 关闭
+     * <p>
+     * 唤醒阻塞中的线程，并丢弃等待中的任务
+     */
+    public
+    void close() {
+        List<Entry> drops;
+        List<CompletableFuture<Void>> futures;
+
+        lock.lock();
+        try {
+            close = true;
+            space.signalAll();
+
+            drops = new ArrayList<>(waiting);
+            waiting.clear();
+            waitsize = 0;
+            futures = new ArrayList<>(spacefuture);
+            spacefuture.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        drops.forEach(Entry::drop);
+        futures.forEach(v -> v.complete(null));
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>受容量限制的任务.</h2>
+     * <p>
+     * 通过 {@link #enqueue()} 将自身交给处理线程，运行时会检查是否已被丢弃
+     * 未经过 {@link QueueBound#offer(Entry)} 的任务不受容量限制
+     *
+     * @author fybug
+     * @version 0.0.1
+     * @since QueueBound 0.0.1
+     */
+    public abstract static
+    class Entry implements Runnable {
+        // 任务状态
+        private static final int WAIT = 0, QUEUED = 1, RUN = 2, DROP = 3;
+
+        /** 数据的字节数 */
+        private final long size;
+        /** 占用的容量 */
+        private long weight;
+        /** 当前状态 */
+        private int state = WAIT;
+        /** 所属的容量限制 */
+        private QueueBound bound;
+
+        /**
+         * 构造任务
+         *
+         * @param size 数据的字节数，为负数时不占用容量
+         */
+        protected
+        Entry(long size) { this.size = size; }
+
+        @Override
+        public
+        void run() {
+            if (begin())
+                run0();
+        }
+
+        /**
+         * 标记任务开始运行并释放容量
+         * <p>
+         * 未使用容量限制的任务总是可以运行
+         *
+         * @return 是否可以运行，任务已被丢弃时返回 {@code false}
+         */
+        public final
+        boolean begin() { return bound == null || bound.start(this); }
+
+        /**
+         * 交给处理线程
+         *
+         * @return 是否成功
+         */
+        protected abstract
+        boolean enqueue();
+
+        /** 运行任务 */
+        protected abstract
+        void run0();
+
+        /**
+         * 任务被丢弃
+         * <p>
+         * 被丢弃的任务可能仍留在处理线程的队列中直到被跳过，应在此释放其中的数据
+         */
+        protected abstract
+        void drop();
+
+        /**
+         * 将数据转移到磁盘
+         * <p>
+         * 用于 {@link Policy#SPILL}，不在队列的锁中运行，转移后应释放内存中的数据，运行时再读回
+         *
+         * @return 是否已转移，默认不支持
+         *
+         * @since QueueBound 0.0.2
+         */
+        protected
+        boolean spill() { return false; }
+    }
+}
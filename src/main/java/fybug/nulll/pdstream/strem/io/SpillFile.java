@@ -0,0 +1,249 @@
+package fybug.nulll.pdstream.strem.io;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import fybug.nulll.pdstream.OPC;
+
+/**
+ * <h2>溢出文件.</h2>
+ * <p>
+ * 将排队中的数据追加写入本地的分段文件中，运行时再按位置读回，用于 {@link QueueBound.Policy#SPILL}
+ * 每段文件达到 {@link OPC#SPILL_SEGMENT_SIZE} 后创建新的分段，分段中的数据全部读回或释放后删除该分段
+ * <p>
+ * 文件只会追加写入，不会覆盖，读回的顺序由任务队列决定
+ * 关闭后删除全部分段，之后无法写入和读回
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see QueueBound.Entry#spill()
+ * @since io 0.0.2
+ */
+public
+class SpillFile {
+    /** 存放分段的目录 */
+    private final Path dir;
+
+    // 分段
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment current;
+    private int segmentid = 0;
+    /** 是否关闭 */
+    private boolean close = false;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 构造溢出文件
+     * <p>
+     * 第一次写入时创建分段
+     *
+     * @param dir 存放分段的目录，需要可写
+     */
+    public
+    SpillFile(@NotNull Path dir) { this.dir = dir; }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 追加数据
+     *
+     * @param data 要写入的数据
+     *
+     * @return 数据的位置，失败或已关闭时为 {@code null}
+     */
+    @Nullable
+    public synchronized
+    Record append(@NotNull byte[] data) {
+        if (close)
+            return null;
+
+        try {
+            var seg = current;
+            if (seg == null || seg.written >= Math.max(1, OPC.SPILL_SEGMENT_SIZE)) {
+                seg = new Segment(Files.createTempFile(dir, "pdstream-spill-" + segmentid++ + "-", ".seg"));
+                segments.add(seg);
+                current = seg;
+                // 之前的分段可能已经全部读回
+                clean();
+            }
+
+            var buff = ByteBuffer.wrap(data);
+            var position = seg.written;
+            while( buff.hasRemaining() )
+                seg.channel.write(buff, position + buff.position());
+
+            seg.written += data.length;
+            seg.outstanding++;
+            return new Record(seg, position, data.length);
+        } catch ( IOException | RuntimeException e ) {
+            return null;
+        }
+    }
+
+    /**
+     * 读回数据
+     * <p>
+     * 读回后释放该数据
+     *
+     * @param record 数据的位置
+     *
+     * @return 写入的数据
+     *
+     * @throws UncheckedIOException 读取失败或已关闭
+     */
+    @NotNull
+    public
+    byte[] read(@NotNull Record record) {
+        var buff = ByteBuffer.allocate(record.length);
+        try {
+            // 按位置读取，不影响写入
+            while( buff.hasRemaining() ) {
+                if (record.segment.channel.read(buff, record.position + buff.position()) < 0)
+                    throw new IOException("spill segment truncated");
+            }
+        } catch ( IOException e ) {
+            throw new UncheckedIOException(e);
+        } finally {
+            release(record);
+        }
+        return buff.array();
+    }
+
+    /**
+     * 释放数据
+     * <p>
+     * 丢弃不再需要读回的数据，重复释放无效
+     *
+     * @param record 数据的位置
+     */
+    public synchronized
+    void release(@NotNull Record record) {
+        if (record.released)
+            return;
+        record.released = true;
+        record.segment.outstanding--;
+        clean();
+    }
+
+    /**
+     * 获取分段占用的空间
+     * <p>
+     * 分段全部读回前，其中已读回的数据仍会占用空间
+     *
+     * @return 字节数
+     */
+    public synchronized
+    long size() {
+        long size = 0;
+        for ( var v : segments )
+            size += v.written;
+        return size;
+    }
+
+    /** 关闭并删除全部分段 */
+    public synchronized
+    void close() {
+        close = true;
+        current = null;
+        segments.forEach(Segment::delete);
+        segments.clear();
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    // 删除已全部读回的分段，需在同步中运行
+    private
+    void clean() {
+        segments.removeIf(v -> {
+            if (v.outstanding > 0 || v.written == 0)
+                return false;
+            // 之后的数据写入新的分段
+            if (v == current)
+                current = null;
+            v.delete();
+            return true;
+        });
+    }
+
+    /**
+     * <h2>数据的位置.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     * @since SpillFile 0.0.1
+     */
+    public static final
+    class Record {
+        /** 所在的分段 */
+        private final Segment segment;
+        /** 在分段中的位置 */
+        private final long position;
+        /** 数据的长度 */
+        private final int length;
+        /** 是否已释放 */
+        private boolean released = false;
+
+        private
+        Record(Segment segment, long position, int length) {
+            this.segment = segment;
+            this.position = position;
+            this.length = length;
+        }
+
+        /**
+         * 获取数据的长度
+         *
+         * @return 字节数
+         */
+        public
+        int length() { return length; }
+    }
+
+    /**
+     * <h2>分段文件.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     * @since SpillFile 0.0.1
+     */
+    private static final
+    class Segment {
+        /** 文件路径 */
+        private final Path path;
+        /** 文件通道 */
+        private final FileChannel channel;
+        /** 已写入的字节数 */
+        private long written = 0;
+        /** 未读回的数据数 */
+        private int outstanding = 0;
+
+        private
+        Segment(Path path) throws IOException {
+            this.path = path;
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        // 关闭并删除
+        private
+        void delete() {
+            try {
+                channel.close();
+            } catch ( IOException ignored ) {
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch ( IOException ignored ) {
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package fybug.nulll.pdstream.strem.io;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import fybug.nulll.pdstream.OPC;
+
+import static fybug.nulll.pdstream.OPC.BYTE_EMPTY_DATA;
+import static fybug.nulll.pdstream.OPC.CHAR_EMPTY_DATA;
+
+/**
+ * <h2>可分段的过滤器.</h2>
+ * <p>
+ * 包装无状态的过滤器，过滤时将数据按照指定的方式切分为多段，在 {@link AsnycRun#sharedPool()} 中并行过滤后按顺序拼接
+ * 只适用于每段数据的结果与其他数据无关的过滤器，如掩码，字节映射和按行转换
+ * <p>
+ * 可按固定大小或按行切分，按行切分时每段在达到指定大小后的第一个换行符处结束
+ * 数据不超过一段时直接在当前线程中过滤
+ * 分段的结果等同于 {@link OPC#BYTE_EMPTY_DATA} || {@link OPC#CHAR_EMPTY_DATA} 时跳过该段，全部跳过时结果也等同于该值
+ * <p>
+ * 过滤器链中相邻的，切分方式相同的分段过滤器会一同运行，每段数据依次经过这些过滤器，只切分和拼接一次
+ * 某个过滤器将该段过滤为空数据后仍会交给后续的过滤器，与依次对整个数据过滤时一致，最终结果为空数据的段才会被跳过
+ *
+ * @param <T> 数据类型，为 {@code byte[]} 或 {@link String}
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see IOFiltrer#filtrerBytes(Function[])
+ * @see IOFiltrer#filtrerChars(Function[])
+ * @since io 0.0.2
+ */
+public final
+class SplitFiltrer<T> implements Function<T, T> {
+    /** 过滤器 */
+    private final Function<T, T> filtrer;
+    /** 是否为字节数据 */
+    private final boolean bytes;
+    /** 每段的大小 */
+    private final int block;
+    /** 是否按行切分 */
+    private final boolean lines;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    private
+    SplitFiltrer(Function<T, T> filtrer, boolean bytes, int block, boolean lines) {
+        this.filtrer = filtrer;
+        this.bytes = bytes;
+        this.block = Math.max(1, block);
+        this.lines = lines;
+    }
+
+    /**
+     * 按固定大小切分的字节过滤器
+     *
+     * @param block   每段的字节数
+     * @param filtrer 无状态的过滤器
+     *
+     * @return 可分段的过滤器
+     */
+    @NotNull
+    public static
+    SplitFiltrer<byte[]> byteBlocks(int block, @NotNull Function<byte[], byte[]> filtrer)
+    { return new SplitFiltrer<>(filtrer, true, block, false); }
+
+    /**
+     * 按行切分的字节过滤器
+     * <p>
+     * 在 {@code '\n'} 之后切分，每段包含结尾的换行符
+     *
+     * @param block   每段的最小字节数
+     * @param filtrer 无状态的过滤器
+     *
+     * @return 可分段的过滤器
+     */
+    @NotNull
+    public static
+    SplitFiltrer<byte[]> byteLines(int block, @NotNull Function<byte[], byte[]> filtrer)
+    { return new SplitFiltrer<>(filtrer, true, block, true); }
+
+    /**
+     * 按固定大小切分的字符过滤器
+     * <p>
+     * 不会拆分代理对
+     *
+     * @param block   每段的字符数
+     * @param filtrer 无状态的过滤器
+     *
+     * @return 可分段的过滤器
+     */
+    @NotNull
+    public static
+    SplitFiltrer<String> charBlocks(int block, @NotNull Function<String, String> filtrer)
+    { return new SplitFiltrer<>(filtrer, false, block, false); }
+
+    /**
+     * 按行切分的字符过滤器
+     * <p>
+     * 在 {@code '\n'} 之后切分，每段包含结尾的换行符
+     *
+     * @param block   每段的最小字符数
+     * @param filtrer 无状态的过滤器
+     *
+     * @return 可分段的过滤器
+     */
+    @NotNull
+    public static
+    SplitFiltrer<String> charLines(int block, @NotNull Function<String, String> filtrer)
+    { return new SplitFiltrer<>(filtrer, false, block, true); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 分段并行过滤
+     *
+     * @param data 要过滤的数据
+     *
+     * @return 过滤后按顺序拼接的数据
+     */
+    @Override
+    public
+    T apply(T data) { return run(List.of(this), data); }
+
+    /**
+     * 是否可与该过滤器一同运行
+     *
+     * @param f 之后的过滤器
+     *
+     * @return 是否为切分方式相同的分段过滤器
+     */
+    boolean sameSplit(@Nullable Function<?, ?> f) {
+        if (!(f instanceof SplitFiltrer))
+            return false;
+        var s = (SplitFiltrer<?>) f;
+        return s.bytes == bytes && s.block == block && s.lines == lines;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 使用切分方式相同的多个过滤器分段并行过滤
+     *
+     * @param chain 分段过滤器，切分方式以第一个为准
+     * @param data  要过滤的数据
+     *
+     * @return 过滤后按顺序拼接的数据
+     */
+    @SuppressWarnings( "unchecked" )
+    static
+    <T> T run(@NotNull List<? extends Function<T, T>> chain, T data) {
+        var first = (SplitFiltrer<T>) chain.get(0);
+        var parts = data == null ? List.<T>of() : first.split(data);
+
+        // 只有一段时直接过滤
+        if (parts.size() < 2) {
+            for ( var f : chain )
+                data = ((SplitFiltrer<T>) f).filtrer.apply(data);
+            return data;
+        }
+
+        var echo = new Object[parts.size()];
+        AsnycRun.runAll(echo.length, OPC.ASYNC_POOL_SIZE, false, i -> echo[i] = first.chain(chain, parts.get(i)));
+        return first.join(echo);
+    }
+
+    // 使用过滤器链过滤一段数据
+    @SuppressWarnings( "unchecked" )
+    private
+    T chain(List<? extends Function<T, T>> chain, T part) {
+        for ( var f : chain )
+            part = ((SplitFiltrer<T>) f).filtrer.apply(part);
+        return part;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    // 切分数据
+    @SuppressWarnings( "unchecked" )
+    private
+    List<T> split(T data) {
+        var length = bytes ? ((byte[]) data).length : ((String) data).length();
+        var echo = new ArrayList<T>(length / block + 1);
+
+        int start = 0;
+        while( start < length ){
+            var end = boundary(data, start, length);
+            echo.add(bytes ? (T) Arrays.copyOfRange((byte[]) data, start, end)
+                           : (T) ((String) data).substring(start, end));
+            start = end;
+        }
+        return echo;
+    }
+
+    // 获取一段的结束位置
+    private
+    int boundary(T data, int start, int length) {
+        var end = (int) Math.min(length, (long) start + block);
+        if (end == length)
+            return end;
+
+        if (lines) {
+            // 下一个换行符之后
+            while( end < length && at(data, end - 1) != '\n' )
+                end++;
+        } else if (!bytes && Character.isHighSurrogate(((String) data).charAt(end - 1)))
+            end++;
+        return end;
+    }
+
+    private
+    int at(T data, int index) { return bytes ? ((byte[]) data)[index] : ((String) data).charAt(index); }
+
+    // 按顺序拼接
+    @SuppressWarnings( "unchecked" )
+    private
+    T join(Object[] parts) {
+        var empty = true;
+        if (bytes) {
+            var buff = new ByteArrayOutputStream();
+            for ( var v : parts ) {
+                if (isEmpty((T) v))
+                    continue;
+                buff.writeBytes((byte[]) v);
+                empty = false;
+            }
+            return empty ? (T) BYTE_EMPTY_DATA : (T) buff.toByteArray();
+        }
+
+        var buff = new StringBuilder();
+        for ( var v : parts ) {
+            if (isEmpty((T) v))
+                continue;
+            buff.append((String) v);
+            empty = false;
+        }
+        return empty ? (T) CHAR_EMPTY_DATA : (T) buff.toString();
+    }
+
+    // 是否为跳过的数据
+    private
+    boolean isEmpty(T part) {
+        return bytes ? Arrays.equals((byte[]) part, BYTE_EMPTY_DATA) : Objects.equals(part, CHAR_EMPTY_DATA);
+    }
+}
@@ -0,0 +1,49 @@
+package fybug.nulll.pdstream.strem.io;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <h2>流式数据过滤器.</h2>
+ * <p>
+ * 按段处理字节数据，可在多段数据间保留状态，用于压缩，加密，校验等需要完整数据流的处理
+ * 过滤器按照添加的顺序串联，前一个过滤器的输出作为后一个的输入
+ * <p>
+ * 调用方会反复调用 {@link #process(ByteBuffer, ByteBuffer)} 直到输入全部被读取
+ * 数据结束时反复调用 {@link #finish(ByteBuffer)} 直到返回 {@code true}，之后调用 {@link #reset()} 以便处理下一段数据流
+ * <p>
+ * 过滤器只会在一个线程中按顺序调用，不需要自行同步
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see IOFiltrer#filtrerStream(StreamFiltrer...)
+ * @since io 0.0.2
+ */
+public
+interface StreamFiltrer {
+    /**
+     * 处理一段数据
+     * <p>
+     * 应读取全部的输入，输出空间不足时可保留剩余的输入并返回，调用方会在取出输出后再次调用
+     * 不完整的数据可以读取后保留在过滤器中，与之后的数据一起处理
+     * 也可以不读取不完整的数据，调用方会在下一次调用时将其放在新的输入之前，数据流结尾时仍未读取则会抛出 {@link IllegalStateException}
+     *
+     * @param in  输入的数据
+     * @param out 写入结果的缓冲区
+     */
+    void process(@NotNull ByteBuffer in, @NotNull ByteBuffer out);
+
+    /**
+     * 结束数据流
+     * <p>
+     * 写入保留在过滤器中的数据和结尾的数据
+     *
+     * @param out 写入结果的缓冲区
+     *
+     * @return 是否已写入全部数据，为 {@code false} 时调用方会在取出输出后再次调用
+     */
+    boolean finish(@NotNull ByteBuffer out);
+
+    /** 重置状态以处理新的数据流 */
+    void reset();
+}
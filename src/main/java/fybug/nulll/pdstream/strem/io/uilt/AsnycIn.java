@@ -5,28 +5,41 @@ import org.jetbrains.annotations.Nullable;
 import java.io.Closeable;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import fybug.nulll.pdstream.io.InByte;
+import fybug.nulll.pdstream.OPC;
 import fybug.nulll.pdstream.io.InString;
 import fybug.nulll.pdstream.strem.io.AsnycRun;
 import fybug.nulll.pdstream.strem.io.HasFiltrer;
+import fybug.nulll.pdstream.strem.io.StreamFiltrer;
 
 import static fybug.nulll.pdstream.OPC.BYTE_DEFAULT_DATA;
+import static fybug.nulll.pdstream.OPC.BYTE_EMPTY_DATA;
 import static fybug.nulll.pdstream.OPC.CHAR_DEFAULT_DATA;
+import static fybug.nulll.pdstream.OPC.CHAR_EMPTY_DATA;
 
 /**
  * <h2>异步读取器.</h2>
  * <p>
  * 使用 {@link SyncIn} 读取数据
- * 使用回调进行数据处理
+ * 使用回调或 {@link CompletableFuture} 进行数据处理
  * 使用分段读取 {@link #subBytes(Consumer)} 和 {@link #subChars(Consumer)} 函数不会使用过滤器
+ * 使用 {@link #subBytesAny(Consumer)} 和 {@link #subCharsAny(Consumer)} 可按完成顺序获取每个流的数据
+ * 使用 {@link #publisher(int)} 和 {@link #charPublisher(int)} 可按照订阅者的请求分段读取
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.2
  * @see SyncIn
  * @see AsnycRun
  * @since uilt 0.0.1
@@ -39,15 +52,26 @@ class AsnycIn extends AsnycRun<AsnycIn> {
     /*--------------------------------------------------------------------------------------------*/
 
     public
-    AsnycIn(@NotNull List<Closeable> streams) {
-        in = new SyncIn(streams);
-        threadPool(Executors.newSingleThreadExecutor());
-    }
+    AsnycIn(@NotNull List<Closeable> streams) { in = new SyncIn(streams); }
+
+    /**
+     * 构造读取器
+     *
+     * @param streams 流集合
+     * @param sizes   流中数据大小的提示
+     *
+     * @see SyncIn#SyncIn(List, Map)
+     * @since AsnycIn 0.0.2
+     */
+    public
+    AsnycIn(@NotNull List<Closeable> streams, @NotNull Map<Closeable, Long> sizes)
+    { in = new SyncIn(streams, sizes); }
 
     /*--------------------------------------------------------------------------------------------*/
 
     @NotNull
     @Override
+    @SuppressWarnings( "unchecked" )
     public
     AsnycIn filtrerBytes(Function<byte[], byte[]>... function) {
         in.filtrerBytes(function);
@@ -56,12 +80,38 @@ class AsnycIn extends AsnycRun<AsnycIn> {
 
     @NotNull
     @Override
+    @SuppressWarnings( "unchecked" )
     public
     AsnycIn filtrerChars(Function<String, String>... Function) {
         in.filtrerChars(Function);
         return this;
     }
 
+    @NotNull
+    @Override
+    public
+    AsnycIn filtrerStream(StreamFiltrer... filtrer) {
+        in.filtrerStream(filtrer);
+        return this;
+    }
+
+    /**
+     * 并行读取多个流
+     *
+     * @param parallel 最多同时读取的流数，小于 {@code 2} 时依次读取
+     *
+     * @return this
+     *
+     * @see SyncIn#parallel(int)
+     * @since AsnycIn 0.0.2
+     */
+    @NotNull
+    public
+    AsnycIn parallel(int parallel) {
+        in.parallel(parallel);
+        return this;
+    }
+
     /*--------------------------------------------------------------------------------------------*/
 
     @Override
@@ -98,6 +148,30 @@ class AsnycIn extends AsnycRun<AsnycIn> {
         return this;
     }
 
+    /*-------------------------------------*/
+
+    /**
+     * 获取全部字节数据
+     * <p>
+     * 返回的 {@link CompletableFuture} 在处理线程中完成，已关闭时结果为 {@link OPC#BYTE_EMPTY_DATA}
+     *
+     * @return 读取结果
+     */
+    @NotNull
+    public
+    CompletableFuture<byte[]> futureBytes() { return appendCall(in::bytes, BYTE_EMPTY_DATA); }
+
+    /**
+     * 获取全部字符数据
+     * <p>
+     * 返回的 {@link CompletableFuture} 在处理线程中完成，已关闭时结果为 {@link OPC#CHAR_EMPTY_DATA}
+     *
+     * @return 读取结果
+     */
+    @NotNull
+    public
+    CompletableFuture<String> futureChars() { return appendCall(in::chars, CHAR_EMPTY_DATA); }
+
     /*--------------------------------------------------------------------------------------------*/
 
     /**
@@ -119,7 +193,7 @@ class AsnycIn extends AsnycRun<AsnycIn> {
 
             // 读取
             HasFiltrer.unifiedInput(streams.stream(), true)
-                      .forEach(v -> callback.accept(new InByte((InputStream) v).readAll()));
+                      .forEach(v -> callback.accept(in.toInByte((InputStream) v).readAll()));
 
             return null;
         }));
@@ -151,4 +225,324 @@ class AsnycIn extends AsnycRun<AsnycIn> {
         }));
         return this;
     }
+
+    /*-------------------------------------*/
+
+    /**
+     * 按完成顺序获取每个流的字节数据
+     * <p>
+     * 同时读取所有的流，每个流读取完成后立即触发回调，回调的顺序与流的顺序无关
+     * 最多同时读取 {@link #parallel(int)} 指定的流数，未指定时为 {@link OPC#ASYNC_POOL_SIZE}
+     * 回调可能在不同的线程中运行，但不会同时运行
+     *
+     * @param callback 回调接口
+     *
+     * @return this
+     *
+     * @see #subBytes(Consumer)
+     * @since AsnycIn 0.0.2
+     */
+    @NotNull
+    public
+    AsnycIn subBytesAny(@NotNull Consumer<@Nullable byte[]> callback) {
+        appendRun(() -> in.runofStream(streams -> {
+            // 检查长度
+            if (streams.size() == 0)
+                callback.accept(BYTE_DEFAULT_DATA);
+
+            var readers = HasFiltrer.unifiedInput(streams.stream(), true)
+                                    .map(v -> in.toInByte((InputStream) v))
+                                    .collect(Collectors.toList());
+            // 读取
+            var lock = new Object();
+            runAll(readers.size(), in.concurrency(OPC.ASYNC_POOL_SIZE), true, i -> {
+                var data = readers.get(i).readAll();
+                synchronized ( lock ){
+                    callback.accept(data);
+                }
+            });
+
+            return null;
+        }));
+        return this;
+    }
+
+    /**
+     * 按完成顺序获取每个流的字符数据
+     * <p>
+     * 同时读取所有的流，每个流读取完成后立即触发回调，回调的顺序与流的顺序无关
+     * 最多同时读取 {@link #parallel(int)} 指定的流数，未指定时为 {@link OPC#ASYNC_POOL_SIZE}
+     * 回调可能在不同的线程中运行，但不会同时运行
+     *
+     * @param callback 回调接口
+     *
+     * @return this
+     *
+     * @see #subChars(Consumer)
+     * @since AsnycIn 0.0.2
+     */
+    @NotNull
+    public
+    AsnycIn subCharsAny(@NotNull Consumer<@Nullable String> callback) {
+        appendRun(() -> in.runofStream(streams -> {
+            // 检查长度
+            if (streams.size() == 0)
+                callback.accept(CHAR_DEFAULT_DATA);
+
+            var readers = HasFiltrer.unifiedInput(streams.stream(), false)
+                                    .map(v -> new InString((Reader) v))
+                                    .collect(Collectors.toList());
+            // 读取
+            var lock = new Object();
+            runAll(readers.size(), in.concurrency(OPC.ASYNC_POOL_SIZE), true, i -> {
+                var data = readers.get(i).readAll();
+                synchronized ( lock ){
+                    callback.accept(data);
+                }
+            });
+
+            return null;
+        }));
+        return this;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 分段读取全部字节数据
+     * <p>
+     * 回调在处理线程中运行，读取完成后传入读取的字节数
+     *
+     * @param size     每段数据的大小
+     * @param callback 处理每段数据的回调
+     * @param end      读取完成的回调
+     *
+     * @return this
+     *
+     * @see SyncIn#chunks(int, Consumer)
+     * @since AsnycIn 0.0.2
+     */
+    @NotNull
+    public
+    AsnycIn chunks(int size, @NotNull Consumer<ByteBuffer> callback, @NotNull Consumer<Long> end) {
+        appendRun(() -> end.accept(in.chunks(size, callback)));
+        return this;
+    }
+
+    /**
+     * 分段读取全部字符数据
+     * <p>
+     * 回调在处理线程中运行，读取完成后传入读取的字符数
+     *
+     * @param size     每段数据的长度
+     * @param callback 处理每段数据的回调
+     * @param end      读取完成的回调
+     *
+     * @return this
+     *
+     * @see SyncIn#charChunks(int, Consumer)
+     * @since AsnycIn 0.0.2
+     */
+    @NotNull
+    public
+    AsnycIn charChunks(int size, @NotNull Consumer<CharBuffer> callback, @NotNull Consumer<Long> end) {
+        appendRun(() -> end.accept(in.charChunks(size, callback)));
+        return this;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取分段读取字节数据的发布者
+     * <p>
+     * 只在订阅者请求数据时读取，每次请求读取对应段数的数据，数据的处理与 {@link SyncIn#chunks(int, Consumer)} 一致
+     * 每段数据都是新的缓冲区，可在回调返回后继续使用
+     * <p>
+     * 只可订阅一次，之后的订阅者会收到 {@link IllegalStateException}
+     * 读取在处理线程中进行，订阅期间不应使用其他的读取方法
+     * 读取完成或已关闭时结束订阅，过滤器出现异常时传给订阅者
+     *
+     * @param size 每段数据的大小
+     *
+     * @return 发布者
+     *
+     * @since AsnycIn 0.0.2
+     */
+    @NotNull
+    public
+    Flow.Publisher<ByteBuffer> publisher(int size) { return new ChunkPublisher<>(size, true); }
+
+    /**
+     * 获取分段读取字符数据的发布者
+     * <p>
+     * 只在订阅者请求数据时读取，每次请求读取对应段数的数据，数据的处理与 {@link SyncIn#charChunks(int, Consumer)} 一致
+     * <p>
+     * 只可订阅一次，之后的订阅者会收到 {@link IllegalStateException}
+     * 读取在处理线程中进行，订阅期间不应使用其他的读取方法
+     * 读取完成或已关闭时结束订阅，过滤器出现异常时传给订阅者
+     *
+     * @param size 每段数据的长度
+     *
+     * @return 发布者
+     *
+     * @since AsnycIn 0.0.2
+     */
+    @NotNull
+    public
+    Flow.Publisher<CharSequence> charPublisher(int size) { return new ChunkPublisher<>(size, false); }
+
+    /**
+     * <h2>分段读取的发布者.</h2>
+     * <p>
+     * 有未满足的请求时向处理线程添加读取任务，每个任务最多发布 {@link OPC#ASYNC_BATCH_SIZE} 段数据后让出处理线程
+     *
+     * @param <T> 数据类型
+     *
+     * @author fybug
+     * @version 0.0.1
+     * @since AsnycIn 0.0.2
+     */
+    private final
+    class ChunkPublisher<T> implements Flow.Publisher<T> {
+        /** 每段数据的大小 */
+        private final int size;
+        /** 是否为字节数据 */
+        private final boolean bytes;
+        /** 是否已被订阅 */
+        private final AtomicBoolean subscribed = new AtomicBoolean(false);
+
+        private
+        ChunkPublisher(int size, boolean bytes) {
+            this.size = size;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public
+        void subscribe(Flow.Subscriber<? super T> subscriber) {
+            Objects.requireNonNull(subscriber);
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public
+                    void request(long n) {}
+
+                    @Override
+                    public
+                    void cancel() {}
+                });
+                subscriber.onError(new IllegalStateException("already subscribed"));
+                return;
+            }
+            subscriber.onSubscribe(new Subscription(subscriber));
+        }
+
+        /**
+         * <h2>订阅.</h2>
+         *
+         * @author fybug
+         * @version 0.0.1
+         * @since ChunkPublisher 0.0.1
+         */
+        private final
+        class Subscription implements Flow.Subscription {
+            private final Flow.Subscriber<? super T> subscriber;
+            private final SyncIn.Cursor cursor = in.cursor(size, bytes);
+
+            /** 未满足的请求 */
+            private final AtomicLong demand = new AtomicLong();
+            /** 是否有读取任务 */
+            private final AtomicBoolean running = new AtomicBoolean(false);
+            // 状态
+            private volatile boolean cancel = false;
+            private volatile Throwable error;
+            /** 是否已发送结束信号，可能同时在请求的线程和处理线程中结束 */
+            private final AtomicBoolean done = new AtomicBoolean(false);
+
+            private
+            Subscription(Flow.Subscriber<? super T> subscriber) { this.subscriber = subscriber; }
+
+            /*------------------------------------------------------------------------------------*/
+
+            @Override
+            public
+            void request(long n) {
+                if (n <= 0)
+                    error = new IllegalArgumentException("non-positive request: " + n);
+                else
+                    demand.getAndUpdate(v -> v + n < 0 ? Long.MAX_VALUE : v + n);
+                schedule();
+            }
+
+            @Override
+            public
+            void cancel() { cancel = true; }
+
+            /*------------------------------------------------------------------------------------*/
+
+            // 添加读取任务
+            private
+            void schedule() {
+                if (!running.compareAndSet(false, true))
+                    return;
+                // 已关闭时结束订阅
+                if (!appendRun(this::drain) && !cancel)
+                    finish(null);
+            }
+
+            // 结束订阅，只会发送一次结束信号
+            private
+            void finish(Throwable e) {
+                if (!done.compareAndSet(false, true))
+                    return;
+                if (e == null)
+                    subscriber.onComplete();
+                else
+                    subscriber.onError(e);
+            }
+
+            // 发布数据
+            @SuppressWarnings( "unchecked" )
+            private
+            void drain() {
+                try {
+                    for ( int i = Math.max(1, OPC.ASYNC_BATCH_SIZE); i > 0 && !done.get() && !cancel; i-- ) {
+                        var e = error;
+                        if (e != null) {
+                            finish(e);
+                            break;
+                        }
+                        if (demand.get() == 0)
+                            break;
+
+                        Object data;
+                        try {
+                            data = in.runofStream(cursor::next);
+                        } catch ( Throwable t ) {
+                            finish(t);
+                            break;
+                        }
+                        // 读取完成或已关闭
+                        if (data == null) {
+                            finish(null);
+                            break;
+                        }
+
+                        demand.decrementAndGet();
+                        try {
+                            subscriber.onNext((T) data);
+                        } catch ( Throwable t ) {
+                            cancel = true;
+                        }
+                    }
+                } finally {
+                    running.set(false);
+                }
+
+                // 还有未满足的请求
+                if (!done.get() && !cancel && (demand.get() > 0 || error != null))
+                    schedule();
+            }
+        }
+    }
 }
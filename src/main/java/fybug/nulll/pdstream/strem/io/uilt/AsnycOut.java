@@ -1,30 +1,77 @@
 package fybug.nulll.pdstream.strem.io.uilt;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
 import java.io.Flushable;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import fybug.nulll.pdstream.OPC;
 import fybug.nulll.pdstream.strem.io.AsnycRun;
+import fybug.nulll.pdstream.strem.io.Pipeline;
+import fybug.nulll.pdstream.strem.io.QueueBound;
+import fybug.nulll.pdstream.strem.io.SpillFile;
+import fybug.nulll.pdstream.strem.io.StreamFiltrer;
 
 /**
  * <h2>异步输出工具.</h2>
  * <p>
- * 使用 {@link SyncOut} 工具进行输出，可使用接口监听输出结果
+ * 使用 {@link SyncOut} 工具进行输出，可使用接口或 {@link CompletableFuture} 监听输出结果
  * 接口在输出完成后调用，传入当前是否成功
+ * <p>
+ * 可使用 {@link #capacity(long, boolean, QueueBound.Policy)} 限制排队中的数据，被丢弃的输出视为失败
+ * 可使用 {@link #coalesce(boolean)} 合并连续的输出
+ * 可使用 {@link #pipeline()} 将字节过滤器分为多个阶段同时运行
+ * 可使用 {@link #byteSubscriber(int)} 和 {@link #charSubscriber(int)} 作为订阅者按照输出的速度请求数据
+ * <p>
+ * 可使用 {@link #partition(int)} 和 {@link #bytes(int, byte[], Consumer)} 等方法将输出到不同流的任务分配到多个分区中同时进行
+ * 输出到所有流的任务和 {@link #flush()} 仍在默认的任务队列中运行
+ * <p>
+ * 可使用 {@link #perSink(long, boolean, QueueBound.Policy)} 为每个流使用单独的任务队列和容量限制，较慢的流不会影响其他流的输出
+ * <p>
+ * 使用 {@link #spillTo(Path)} 指定溢出文件后，{@link QueueBound.Policy#SPILL} 会将超出容量的数据写入磁盘，运行时按顺序读回
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.6
  * @see AsnycRun
  * @see SyncOut
+ * @see QueueBound
  * @since uilt 0.0.1
  */
 public
 class AsnycOut extends AsnycRun<AsnycOut> implements Flushable {
+    /** 已过滤数据的合并分组 */
+    private static final Object FILTRED = new Object();
+
     /** 输出用 */
     private SyncOut out;
+    /** 队列容量限制 */
+    private volatile QueueBound bound;
+    /** 是否合并输出 */
+    private volatile boolean coalesce = false;
+    /** 每个流单独的队列 */
+    private volatile Lane[] lanes;
+    /** 溢出文件 */
+    private volatile SpillFile spill;
+    /** 过滤用流水线 */
+    private volatile Pipeline<Output> pipe;
+    private final Object pipelock = new Object();
 
     /*--------------------------------------------------------------------------------------------*/
 
@@ -40,6 +87,7 @@ class AsnycOut extends AsnycRun<AsnycOut> implements Flushable {
 
     @NotNull
     @Override
+    @SuppressWarnings( "unchecked" )
     public
     AsnycOut filtrerBytes(Function<byte[], byte[]>... function) {
         out.filtrerBytes(function);
@@ -48,23 +96,735 @@ class AsnycOut extends AsnycRun<AsnycOut> implements Flushable {
 
     @NotNull
     @Override
+    @SuppressWarnings( "unchecked" )
     public
     AsnycOut filtrerChars(Function<String, String>... Function) {
         out.filtrerChars(Function);
         return this;
     }
 
+    @NotNull
+    @Override
+    public
+    AsnycOut filtrerStream(StreamFiltrer... filtrer) {
+        out.filtrerStream(filtrer);
+        return this;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 限制排队中的输出
+     * <p>
+     * 应在输出数据前设置，按字节计算时字符数据使用其长度计算
+     * 重复设置时关闭原本的限制，其中等待加入的输出会被丢弃
+     *
+     * @param capacity 容量
+     * @param bytes    是否按字节计算，否则按输出次数计算
+     * @param policy   超出容量时的策略
+     *
+     * @return this
+     */
+    @NotNull
+    public
+    AsnycOut capacity(long capacity, boolean bytes, @NotNull QueueBound.Policy policy) {
+        if (isClose())
+            return this;
+
+        var old = bound;
+        bound = new QueueBound(capacity, bytes, policy);
+        if (old != null)
+            old.close();
+        return this;
+    }
+
+    /**
+     * 指定刷新策略
+     * <p>
+     * 显式调用 {@link #flush()} 会作为任务在之前的输出完成后运行
+     *
+     * @param policy 输出后刷新流的策略
+     *
+     * @return this
+     *
+     * @see SyncOut#flushPolicy(FlushPolicy)
+     */
+    @NotNull
+    public
+    AsnycOut flushPolicy(@NotNull FlushPolicy policy) {
+        out.flushPolicy(policy);
+        return this;
+    }
+
+    /**
+     * 是否并行输出到多个流中
+     *
+     * @param parallel 是否开启
+     *
+     * @return this
+     *
+     * @see SyncOut#parallel(boolean)
+     */
+    @NotNull
+    public
+    AsnycOut parallel(boolean parallel) {
+        out.parallel(parallel);
+        return this;
+    }
+
+    /**
+     * 是否合并输出
+     * <p>
+     * 开启后处理线程取出的相邻 {@code bytes} 或 {@code chars} 输出会整合为一段数据，每个流只写入和刷新一次
+     * 每段数据仍会分别过滤，每个任务的监听都会收到整合输出的结果
+     *
+     * @param coalesce 是否开启，只影响之后添加的输出
+     *
+     * @return this
+     */
+    @NotNull
+    public
+    AsnycOut coalesce(boolean coalesce) {
+        this.coalesce = coalesce;
+        return this;
+    }
+
+    /**
+     * 开启流水线过滤
+     * <p>
+     * 开启后每个字节过滤器都在共享线程池中作为单独的阶段运行，不同的过滤器可同时处理不同的数据，输出仍按照添加的顺序进行
+     * 所有输出任务都会先经过流水线，过滤器出现异常时该次输出视为失败
+     * 使用开启时已添加的字节过滤器，应在添加过滤器后开启，开启后不可关闭
+     * 没有字节过滤器时不会开启
+     *
+     * @return this
+     *
+     * @see Pipeline
+     * @since AsnycOut 0.0.3
+     */
+    @NotNull
+    public
+    AsnycOut pipeline() {
+        synchronized ( pipelock ){
+            var stages = out.byteStages();
+            if (pipe != null || isClose() || stages.isEmpty())
+                return this;
+
+            var list = new ArrayList<Function<Output, Output>>(stages.size());
+            stages.forEach(f -> list.add(v -> v.filtrer(f)));
+            pipe = new Pipeline<>(list, v -> {
+                try {
+                    v.accept();
+                } catch ( Throwable ignored ) {
+                }
+            });
+        }
+        return this;
+    }
+
+    /**
+     * 获取排队中的数据量
+     *
+     * @return 按照 {@link #capacity(long, boolean, QueueBound.Policy)} 的单位计算，未限制时为 {@code 0}
+     */
+    public
+    long queued() {
+        var b = bound;
+        return b == null ? 0 : b.size();
+    }
+
+    /**
+     * 等待队列有空余容量
+     *
+     * @return 有空余容量时完成，未限制时直接完成
+     */
+    @NotNull
+    public
+    CompletableFuture<Void> awaitSpace() {
+        var b = bound;
+        return b == null ? CompletableFuture.completedFuture(null) : b.space();
+    }
+
+    /**
+     * 指定溢出文件的目录
+     * <p>
+     * 使用 {@link QueueBound.Policy#SPILL} 限制容量时，超出容量的数据会追加写入该目录下的分段文件中，只在内存中保留输出任务
+     * 处理线程按照添加的顺序输出，输出到溢出的数据时再从磁盘读回
+     * 未指定时 {@link QueueBound.Policy#SPILL} 会丢弃超出容量的输出，关闭时删除溢出文件
+     * 已有数据写入溢出文件后不可再修改，之前未写入数据的溢出文件会被关闭
+     *
+     * @param dir 存放溢出文件的目录
+     *
+     * @return this
+     *
+     * @see #capacity(long, boolean, QueueBound.Policy)
+     * @see #perSink(long, boolean, QueueBound.Policy)
+     * @see SpillFile
+     * @since AsnycOut 0.0.6
+     */
+    @NotNull
+    public
+    AsnycOut spillTo(@NotNull Path dir) {
+        var old = spill;
+        // 已溢出的数据需从原本的文件中读回
+        if (isClose() || (old != null && old.size() > 0))
+            return this;
+
+        spill = new SpillFile(dir);
+        if (old != null)
+            old.close();
+        return this;
+    }
+
+    /**
+     * 获取溢出文件占用的空间
+     *
+     * @return 字节数，未指定溢出文件时为 {@code 0}
+     *
+     * @since AsnycOut 0.0.6
+     */
+    public
+    long spilled() {
+        var f = spill;
+        return f == null ? 0 : f.size();
+    }
+
+    /*-------------------------------------*/
+
+    /**
+     * 为每个流使用单独的任务队列
+     * <p>
+     * 开启后每个流都有单独的分区和容量限制，输出到所有流的数据在添加时过滤一次，之后分别加入每个流的队列
+     * 每个流的输出按顺序进行，较慢的流只会占满自身的队列，其他流的输出不受影响
+     * 全部流的输出完成后调用监听，有一个流失败时结果为 {@code false}
+     * <p>
+     * 每个流按照 {@link #flushPolicy(FlushPolicy)} 单独记录未刷新的数据并刷新
+     * 该模式下不会合并输出，也不会使用流式过滤器，{@link #capacity(long, boolean, QueueBound.Policy)} 的限制不再生效
+     * 使用 {@link QueueBound.Policy#BLOCK} 时任一流的队列已满都会阻塞添加输出的线程
+     * 应在输出数据前开启，会覆盖 {@link #partition(int)} 的设置，重复开启时关闭原本每个流的容量限制
+     *
+     * @param capacity 每个流的容量
+     * @param bytes    是否按字节计算，否则按输出次数计算
+     * @param policy   超出容量时的策略
+     *
+     * @return this
+     *
+     * @see #lag(int)
+     * @since AsnycOut 0.0.5
+     */
+    @NotNull
+    public
+    AsnycOut perSink(long capacity, boolean bytes, @NotNull QueueBound.Policy policy) {
+        if (isClose())
+            return this;
+
+        var l = new Lane[out.sinks()];
+        for ( int i = 0; i < l.length; i++ )
+            l[i] = new Lane(new QueueBound(capacity, bytes, policy));
+        // 流的位置即分区的位置
+        partition(l.length);
+        var old = lanes;
+        lanes = l;
+        if (old != null)
+            for ( var v : old )
+                v.bound.close();
+        return this;
+    }
+
+    /**
+     * 获取指定流排队中的输出次数
+     *
+     * @param sink 流的位置
+     *
+     * @return 已添加但还未完成的输出次数，未开启 {@link #perSink(long, boolean, QueueBound.Policy)} 或位置超出范围时为 {@code 0}
+     *
+     * @since AsnycOut 0.0.5
+     */
+    public
+    int backlog(int sink) {
+        var l = lane(sink);
+        return l == null ? 0 : l.count.get();
+    }
+
+    /**
+     * 获取指定流的延迟
+     * <p>
+     * 即该流最早添加且还未完成的输出已等待的时间
+     *
+     * @param sink 流的位置
+     *
+     * @return 毫秒，没有排队中的输出，未开启 {@link #perSink(long, boolean, QueueBound.Policy)} 或位置超出范围时为 {@code 0}
+     *
+     * @since AsnycOut 0.0.5
+     */
+    public
+    long lag(int sink) {
+        var l = lane(sink);
+        if (l == null)
+            return 0;
+
+        var first = l.pending.peek();
+        return first == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - first.entered);
+    }
+
+    // 获取流的队列
+    @Nullable
+    private
+    Lane lane(int sink) {
+        var l = lanes;
+        return l == null || sink < 0 || sink >= l.length ? null : l[sink];
+    }
+
+    /**
+     * <h2>单个流的队列.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     * @since AsnycOut 0.0.5
+     */
+    private static final
+    class Lane {
+        /** 容量限制 */
+        private final QueueBound bound;
+        /** 还未完成的输出 */
+        private final ConcurrentLinkedQueue<Output> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger count = new AtomicInteger();
+
+        private
+        Lane(QueueBound bound) { this.bound = bound; }
+    }
+
     /*--------------------------------------------------------------------------------------------*/
 
+    /** 等待流水线中的任务交给处理线程后再添加关闭任务 */
+    @Override
+    protected
+    void closeLoop(@NotNull Runnable close) {
+        Pipeline<Output> p;
+        synchronized ( pipelock ){
+            p = pipe;
+        }
+        if (p == null || !p.end(() -> super.closeLoop(close)))
+            super.closeLoop(close);
+    }
+
     @Override
     protected
     void close0() {
+        var b = bound;
+        if (b != null)
+            b.close();
+        var l = lanes;
+        if (l != null)
+            for ( var v : l )
+                v.bound.close();
         out.close();
+        var f = spill;
+        if (f != null)
+            f.close();
     }
 
     @Override
     public
-    void flush() { appendRun(() -> out.flush()); }
+    void flush() {
+        appendOut(-1, null, () -> {
+            out.flush();
+            return true;
+        }, i -> {
+            out.flush(i);
+            return true;
+        }, v -> {}, null);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 添加输出任务
+     * <p>
+     * 无法添加时传入 {@code false}
+     * 开启流水线时先交给流水线，过滤后再加入队列
+     *
+     * @param size 数据的字节数，为负数时不占用容量
+     * @param data 输出的数据，为 {@code null} 时不参与合并
+     * @param run  没有数据时的输出任务
+     * @param each 没有数据时输出到单个流的任务
+     * @param fun  状态监听
+     * @param fail 出现异常时调用，为 {@code null} 时向状态监听传入 {@code false}
+     */
+    private
+    void appendOut(long size, @Nullable Object data, Supplier<Boolean> run, @Nullable IntFunction<Boolean> each,
+                   Consumer<Boolean> fun, @Nullable Consumer<Throwable> fail)
+    {
+        var p = pipe;
+        var output = new Output(-1, size, data, run, fun, fail, p != null);
+        output.each = each;
+
+        if (p == null)
+            output.accept();
+        else if (!p.offer(output))
+            output.drop();
+    }
+
+    /**
+     * 添加输出到单个流的任务
+     * <p>
+     * 开启分区时按照流的位置分配到分区中
+     *
+     * @param sink 流的位置，为负数时输出到所有流
+     *
+     * @see #appendOut(long, Object, Supplier, IntFunction, Consumer, Consumer)
+     */
+    private
+    void appendOut(int sink, long size, @Nullable Object data, Supplier<Boolean> run, Consumer<Boolean> fun,
+                   @Nullable Consumer<Throwable> fail)
+    {
+        var p = pipe;
+        var output = new Output(sink, size, data, run, fun, fail, p != null);
+
+        if (p == null)
+            output.accept();
+        else if (!p.offer(output))
+            output.drop();
+    }
+
+    /** 添加输出任务，使用 {@link CompletableFuture} 监听 */
+    private
+    CompletableFuture<Boolean> futureOut(long size, @Nullable Object data, Supplier<Boolean> run,
+                                         @Nullable IntFunction<Boolean> each)
+    {
+        var future = new CompletableFuture<Boolean>();
+        appendOut(size, data, run, each, future::complete, future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * <h2>输出任务.</h2>
+     * <p>
+     * 开启合并输出时，相邻的同类型数据会合并为一次输出，并将结果传给每个任务的监听
+     * 经过流水线的字节数据已在流水线中过滤，输出时不再使用字节过滤器
+     * <p>
+     * 为每个流使用单独的队列时，输出到所有流的任务会拆分为每个流的任务，全部完成后再调用监听
+     * <p>
+     * 有数据的任务按照数据的类型输出，数据可转移到溢出文件中，运行时再读回
+     *
+     * @author fybug
+     * @version 0.0.4
+     * @since AsnycOut 0.0.2
+     */
+    private final
+    class Output extends QueueBound.Entry implements MergeRun {
+        /** 输出到的流，为负数时输出到所有流 */
+        private final int sink;
+        /** 数据的字节数 */
+        private final long length;
+        /** 输出的数据 */
+        private Object data;
+        /** 是否为字符数据 */
+        private final boolean chars;
+        // 转移到磁盘的数据
+        private SpillFile file;
+        private SpillFile.Record record;
+        /** 合并分组 */
+        private final Object group;
+        // 任务
+        private Supplier<Boolean> run;
+        private final Consumer<Boolean> fun;
+        private final Consumer<Throwable> fail;
+
+        /** 是否经过流水线 */
+        private final boolean piped;
+        /** 数据是否已过滤 */
+        private boolean filtred;
+        /** 过滤时出现的异常 */
+        private Throwable error;
+
+        /** 输出到单个流的任务 */
+        private IntFunction<Boolean> each;
+        /** 所在的流的队列 */
+        private Lane lane;
+        /** 进入流的队列的时间 */
+        private long entered;
+        // 拆分后的任务结果
+        private AtomicInteger remain;
+        private volatile boolean success = true;
+        private volatile Throwable failure;
+
+        private
+        Output(int sink, long size, Object data, Supplier<Boolean> run, Consumer<Boolean> fun,
+               Consumer<Throwable> fail, boolean piped)
+        {
+            super(size);
+            this.sink = sink;
+            length = size;
+            this.data = data;
+            chars = data instanceof String;
+            this.run = run;
+            this.fun = fun;
+            this.fail = fail;
+            this.piped = piped;
+            filtred = piped && data instanceof byte[];
+            // 输出到单个流的任务不合并
+            group = coalesce && data != null && sink < 0 && lanes == null ? filtred ? FILTRED : data.getClass() : null;
+        }
+
+        /*----------------------------------------------------------------------------------------*/
+
+        // 是否在流水线中过滤数据
+        private
+        boolean filtred() { return filtred; }
+
+        // 流水线中的过滤阶段
+        private
+        Output filtrer(Function<byte[], byte[]> filtrer) {
+            if (error == null && filtred()) {
+                try {
+                    data = filtrer.apply((byte[]) data);
+                } catch ( Throwable e ) {
+                    error = e;
+                }
+            }
+            return this;
+        }
+
+        // 加入队列
+        private
+        void accept() {
+            var l = lanes;
+            if (l != null && sink < 0) {
+                split(l);
+                return;
+            }
+
+            var b = bound;
+            if (l != null && sink < l.length) {
+                lane = l[sink];
+                b = lane.bound;
+                entered = System.nanoTime();
+                lane.count.incrementAndGet();
+                lane.pending.add(this);
+            }
+
+            if (b != null)
+                b.offer(this);
+            else if (!enqueue())
+                drop();
+        }
+
+        // 拆分为每个流的任务
+        private
+        void split(Lane[] l) {
+            var d = data;
+            if (error == null && d != null && !filtred) {
+                // 只过滤一次
+                try {
+                    d = out.filtrer(d);
+                } catch ( Throwable e ) {
+                    error = e;
+                }
+            }
+            if (error != null) {
+                fail(error);
+                return;
+            }
+            if (l.length == 0) {
+                fun.accept(true);
+                return;
+            }
+
+            remain = new AtomicInteger(l.length);
+            for ( int i = 0; i < l.length; i++ ) {
+                var index = i;
+                var o = new Output(i, length, d, each == null ? null : () -> each.apply(index),
+                                   v -> part(v, null), e -> part(false, e), piped);
+                o.filtred = d != null;
+                o.accept();
+            }
+        }
+
+        // 一个流的任务完成
+        private
+        void part(boolean result, Throwable e) {
+            if (!result)
+                success = false;
+            if (e != null && failure == null)
+                failure = e;
+            if (remain.decrementAndGet() != 0)
+                return;
+
+            if (failure == null)
+                fun.accept(success);
+            else
+                fail(failure);
+        }
+
+        // 获取数据，已转移到磁盘时读回
+        private
+        Object load() {
+            var r = record;
+            if (r == null)
+                return data;
+
+            record = null;
+            var b = file.read(r);
+            return chars ? ByteBuffer.wrap(b).asCharBuffer().toString() : b;
+        }
+
+        // 释放磁盘中的数据
+        private
+        void release() {
+            var r = record;
+            if (r != null) {
+                record = null;
+                file.release(r);
+            }
+        }
+
+        // 离开流的队列
+        private
+        void leave() {
+            var l = lane;
+            if (l != null && l.pending.remove(this))
+                l.count.decrementAndGet();
+        }
+
+        // 出现异常
+        private
+        void fail(Throwable e) {
+            if (fail == null)
+                fun.accept(false);
+            else
+                fail.accept(e);
+        }
+
+        /*----------------------------------------------------------------------------------------*/
+
+        // 分区的键
+        private
+        Object key() { return sink < 0 ? null : sink; }
+
+        @Override
+        protected
+        boolean enqueue() { return piped ? appendAccepted(key(), this) : appendRun(key(), this); }
+
+        @Override
+        protected
+        void run0() {
+            var e = error;
+            boolean result = false;
+            if (e == null) {
+                try {
+                    var d = load();
+                    if (d == null)
+                        result = run.get();
+                    else if (!chars)
+                        result = sink < 0 ? out.bytes((byte[]) d, !filtred) : out.bytes(sink, (byte[]) d, !filtred);
+                    else
+                        result = sink < 0 ? out.chars((String) d) : out.chars(sink, (String) d, !filtred);
+                } catch ( Throwable t ) {
+                    e = t;
+                }
+            }
+
+            leave();
+            if (e == null)
+                fun.accept(result);
+            else
+                fail(e);
+        }
+
+        @Override
+        protected
+        void drop() {
+            leave();
+            release();
+            // 丢弃的任务可能仍留在任务队列中，不再持有数据
+            data = null;
+            run = null;
+            each = null;
+            fun.accept(false);
+        }
+
+        @Override
+        protected
+        boolean spill() {
+            var f = spill;
+            var d = data;
+            if (f == null)
+                return false;
+            // 没有数据
+            if (d == null)
+                return true;
+
+            var r = f.append(chars ? toBytes((String) d) : (byte[]) d);
+            if (r == null)
+                return false;
+            file = f;
+            record = r;
+            data = null;
+            return true;
+        }
+
+        // 按原样转化字符，不经过编码
+        private
+        byte[] toBytes(String data) {
+            var buff = ByteBuffer.allocate(data.length() * 2);
+            buff.asCharBuffer().put(data);
+            return buff.array();
+        }
+
+        /*----------------------------------------------------------------------------------------*/
+
+        @Nullable
+        @Override
+        public
+        Object mergeGroup() { return group; }
+
+        @Override
+        public
+        void runMerge(@NotNull List<MergeRun> runs) {
+            // 去除被丢弃和过滤失败的任务
+            var outputs = new ArrayList<Output>(runs.size());
+            for ( var r : runs ) {
+                var o = (Output) r;
+                if (!o.begin())
+                    continue;
+                if (o.error == null)
+                    outputs.add(o);
+                else
+                    o.fail(o.error);
+            }
+
+            if (outputs.isEmpty())
+                return;
+            if (outputs.size() == 1) {
+                outputs.get(0).run0();
+                return;
+            }
+
+            boolean result;
+            try {
+                if (!chars)
+                    result = out.bytes(outputs.stream()
+                                              .map(v -> (byte[]) v.load())
+                                              .collect(Collectors.toList()), !filtred());
+                else
+                    result = out.chars(outputs.stream()
+                                              .map(v -> (String) v.load())
+                                              .collect(Collectors.toList()));
+            } catch ( Throwable e ) {
+                // 未读回的数据不再需要
+                outputs.forEach(Output::release);
+                result = false;
+            }
+
+            for ( var v : outputs ) {
+                try {
+                    v.fun.accept(result);
+                } catch ( Throwable ignored ) {
+                }
+            }
+        }
+    }
 
     /*--------------------------------------------------------------------------------------------*/
 
@@ -81,7 +841,7 @@ class AsnycOut extends AsnycRun<AsnycOut> implements Flushable {
     @NotNull
     public
     AsnycOut bytes(@NotNull byte[] data, @NotNull Consumer<Boolean> fun) {
-        appendRun(() -> fun.accept(out.bytes(data)));
+        appendOut(data.length, data, null, null, fun, null);
         return this;
     }
 
@@ -98,7 +858,7 @@ class AsnycOut extends AsnycRun<AsnycOut> implements Flushable {
     @NotNull
     public
     AsnycOut chars(@NotNull String data, @NotNull Consumer<Boolean> fun) {
-        appendRun(() -> fun.accept(out.chars(data)));
+        appendOut(data.length(), data, null, null, fun, null);
         return this;
     }
 
@@ -114,10 +874,139 @@ class AsnycOut extends AsnycRun<AsnycOut> implements Flushable {
     @NotNull
     public
     AsnycOut echoData(@NotNull Consumer<Boolean> fun) {
-        appendRun(() -> fun.accept(out.echoData()));
+        appendOut(0, null, out::echoData, out::echoData, fun, null);
+        return this;
+    }
+
+    /*-------------------------------------*/
+
+    /**
+     * 输出指定数据到单个流中
+     * <p>
+     * 开启分区时按照流的位置分配到分区中，同一个流的输出按顺序进行，不同的流可同时输出
+     * 不会与其他输出合并
+     *
+     * @param sink 流的位置
+     * @param data 输出的数据
+     * @param fun  状态监听
+     *
+     * @return this
+     *
+     * @see SyncOut#bytes(int, byte[])
+     * @see #partition(int)
+     * @since AsnycOut 0.0.4
+     */
+    @NotNull
+    public
+    AsnycOut bytes(int sink, @NotNull byte[] data, @NotNull Consumer<Boolean> fun) {
+        appendOut(sink(sink), data.length, data, null, fun, null);
         return this;
     }
 
+    /**
+     * 输出指定数据到单个流中
+     *
+     * @param sink 流的位置
+     * @param data 输出的数据
+     * @param fun  状态监听
+     *
+     * @return this
+     *
+     * @see #bytes(int, byte[], Consumer)
+     * @since AsnycOut 0.0.4
+     */
+    @NotNull
+    public
+    AsnycOut chars(int sink, @NotNull String data, @NotNull Consumer<Boolean> fun) {
+        appendOut(sink(sink), data.length(), data, null, fun, null);
+        return this;
+    }
+
+    /**
+     * 输出指定数据到单个流中
+     *
+     * @param sink 流的位置
+     * @param data 输出的数据
+     *
+     * @return 是否成功
+     *
+     * @see #bytes(int, byte[], Consumer)
+     * @since AsnycOut 0.0.4
+     */
+    @NotNull
+    public
+    CompletableFuture<Boolean> futureBytes(int sink, @NotNull byte[] data) {
+        var future = new CompletableFuture<Boolean>();
+        appendOut(sink(sink), data.length, data, null, future::complete,
+                  future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * 输出指定数据到单个流中
+     *
+     * @param sink 流的位置
+     * @param data 输出的数据
+     *
+     * @return 是否成功
+     *
+     * @see #bytes(int, byte[], Consumer)
+     * @since AsnycOut 0.0.4
+     */
+    @NotNull
+    public
+    CompletableFuture<Boolean> futureChars(int sink, @NotNull String data) {
+        var future = new CompletableFuture<Boolean>();
+        appendOut(sink(sink), data.length(), data, null, future::complete,
+                  future::completeExceptionally);
+        return future;
+    }
+
+    // 无效的位置不能作为广播输出，替换为超出范围的位置以输出失败
+    private static
+    int sink(int sink) { return sink < 0 ? Integer.MAX_VALUE : sink; }
+
+    /*-------------------------------------*/
+
+    /**
+     * 输出指定数据
+     * <p>
+     * 返回的 {@link CompletableFuture} 在处理线程中完成，已关闭或被丢弃时结果为 {@code false}
+     *
+     * @param data 输出的数据
+     *
+     * @return 是否成功
+     */
+    @NotNull
+    public
+    CompletableFuture<Boolean> futureBytes(@NotNull byte[] data)
+    { return futureOut(data.length, data, null, null); }
+
+    /**
+     * 输出指定数据
+     * <p>
+     * 返回的 {@link CompletableFuture} 在处理线程中完成，已关闭或被丢弃时结果为 {@code false}
+     *
+     * @param data 输出的数据
+     *
+     * @return 是否成功
+     */
+    @NotNull
+    public
+    CompletableFuture<Boolean> futureChars(@NotNull String data)
+    { return futureOut(data.length(), data, null, null); }
+
+    /**
+     * 输出绑定的数据
+     * <p>
+     * 返回的 {@link CompletableFuture} 在处理线程中完成，已关闭或被丢弃时结果为 {@code false}
+     *
+     * @return 是否成功
+     */
+    @NotNull
+    public
+    CompletableFuture<Boolean> futureEchoData() { return futureOut(0, null, out::echoData, out::echoData); }
+
     /*-------------------------------------*/
 
     /**
@@ -150,4 +1039,157 @@ class AsnycOut extends AsnycRun<AsnycOut> implements Flushable {
     @NotNull
     public
     AsnycOut echoData() { return echoData(v -> {}); }
+
+    /**
+     * 输出指定数据到单个流中
+     *
+     * @param sink 流的位置
+     * @param data 输出的数据
+     *
+     * @return this
+     *
+     * @since AsnycOut 0.0.4
+     */
+    @NotNull
+    public
+    AsnycOut bytes(int sink, @NotNull byte[] data) { return bytes(sink, data, v -> {}); }
+
+    /**
+     * 输出指定数据到单个流中
+     *
+     * @param sink 流的位置
+     * @param data 输出的数据
+     *
+     * @return this
+     *
+     * @since AsnycOut 0.0.4
+     */
+    @NotNull
+    public
+    AsnycOut chars(int sink, @NotNull String data) { return chars(sink, data, v -> {}); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取输出字节数据的订阅者
+     * <p>
+     * 同时请求 {@link OPC#SUBSCRIBER_WINDOW} 个数据
+     *
+     * @return 订阅者
+     *
+     * @see #byteSubscriber(int)
+     * @since AsnycOut 0.0.3
+     */
+    @NotNull
+    public
+    Flow.Subscriber<byte[]> byteSubscriber() { return byteSubscriber(OPC.SUBSCRIBER_WINDOW); }
+
+    /**
+     * 获取输出字节数据的订阅者
+     * <p>
+     * 订阅时请求指定数量的数据，之后每个数据输出完成或被丢弃后再请求一个，排队中的数据不会超过该数量
+     * 上游结束或出错时刷新，不会关闭，已关闭时取消订阅
+     * <p>
+     * 使用 {@link QueueBound.Policy#BLOCK} 限制容量时，数量不应超过容量，否则上游同步发布数据时可能阻塞处理线程
+     *
+     * @param window 同时请求的数据数
+     *
+     * @return 订阅者，只可订阅一次
+     *
+     * @since AsnycOut 0.0.3
+     */
+    @NotNull
+    public
+    Flow.Subscriber<byte[]> byteSubscriber(int window) { return new Sink<>(window, this::bytes); }
+
+    /**
+     * 获取输出字符数据的订阅者
+     * <p>
+     * 同时请求 {@link OPC#SUBSCRIBER_WINDOW} 个数据
+     *
+     * @return 订阅者
+     *
+     * @see #charSubscriber(int)
+     * @since AsnycOut 0.0.3
+     */
+    @NotNull
+    public
+    Flow.Subscriber<String> charSubscriber() { return charSubscriber(OPC.SUBSCRIBER_WINDOW); }
+
+    /**
+     * 获取输出字符数据的订阅者
+     *
+     * @param window 同时请求的数据数
+     *
+     * @return 订阅者，只可订阅一次
+     *
+     * @see #byteSubscriber(int)
+     * @since AsnycOut 0.0.3
+     */
+    @NotNull
+    public
+    Flow.Subscriber<String> charSubscriber(int window) { return new Sink<>(window, this::chars); }
+
+    /**
+     * <h2>输出用订阅者.</h2>
+     * <p>
+     * 每个数据输出完成后请求下一个
+     *
+     * @param <T> 数据类型
+     *
+     * @author fybug
+     * @version 0.0.1
+     * @since AsnycOut 0.0.3
+     */
+    private final
+    class Sink<T> implements Flow.Subscriber<T> {
+        /** 同时请求的数据数 */
+        private final int window;
+        /** 输出数据 */
+        private final BiConsumer<T, Consumer<Boolean>> write;
+        /** 当前的订阅 */
+        private final AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+
+        private
+        Sink(int window, BiConsumer<T, Consumer<Boolean>> write) {
+            this.window = Math.max(1, window);
+            this.write = write;
+        }
+
+        @Override
+        public
+        void onSubscribe(Flow.Subscription s) {
+            Objects.requireNonNull(s);
+            if (isClose() || !subscription.compareAndSet(null, s)) {
+                s.cancel();
+                return;
+            }
+            s.request(window);
+        }
+
+        @Override
+        public
+        void onNext(T item) {
+            Objects.requireNonNull(item);
+            write.accept(item, v -> {
+                var s = subscription.get();
+                // 已关闭
+                if (isClose())
+                    s.cancel();
+                else
+                    s.request(1);
+            });
+        }
+
+        @Override
+        public
+        void onError(Throwable throwable) {
+            Objects.requireNonNull(throwable);
+            flush();
+        }
+
+        @Override
+        public
+        void onComplete() { flush(); }
+    }
 }
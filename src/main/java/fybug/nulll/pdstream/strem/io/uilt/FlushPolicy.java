@@ -0,0 +1,84 @@
+package fybug.nulll.pdstream.strem.io.uilt;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <h2>输出刷新策略.</h2>
+ * <p>
+ * 用于指定 {@link SyncOut} 在输出后何时刷新流
+ * 任何策略下执行 {@code flush()} 或 {@code close()} 时都会刷新
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see SyncOut#flushPolicy(FlushPolicy)
+ * @since uilt 0.0.2
+ */
+public final
+class FlushPolicy {
+    // 刷新方式
+    static final int ALWAYS = 0, BYTES = 1, INTERVAL = 2, EXPLICIT = 3;
+
+    /** 每次输出后都刷新 */
+    private static final FlushPolicy ALWAYS_POLICY = new FlushPolicy(ALWAYS, 0);
+    /** 只在显式调用时刷新 */
+    private static final FlushPolicy EXPLICIT_POLICY = new FlushPolicy(EXPLICIT, 0);
+
+    /** 刷新方式 */
+    final int mode;
+    /** 字节数或毫秒数 */
+    final long value;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    private
+    FlushPolicy(int mode, long value) {
+        this.mode = mode;
+        this.value = value;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 每次输出后都刷新
+     *
+     * @return 默认的刷新策略
+     */
+    @NotNull
+    public static
+    FlushPolicy always() { return ALWAYS_POLICY; }
+
+    /**
+     * 未刷新的数据达到指定大小后刷新
+     * <p>
+     * 字符数据按照其长度计算
+     *
+     * @param size 刷新的阈值
+     *
+     * @return 按大小刷新的策略
+     */
+    @NotNull
+    public static
+    FlushPolicy bytes(long size) { return size <= 1 ? ALWAYS_POLICY : new FlushPolicy(BYTES, size); }
+
+    /**
+     * 有未刷新的数据时每隔指定的时间刷新
+     * <p>
+     * 输出时距离上次刷新已超过该时间会直接刷新，否则在到达时间后于共享线程池中刷新
+     *
+     * @param millis 刷新的间隔，单位为毫秒
+     *
+     * @return 按时间刷新的策略
+     */
+    @NotNull
+    public static
+    FlushPolicy interval(long millis)
+    { return millis <= 0 ? ALWAYS_POLICY : new FlushPolicy(INTERVAL, millis); }
+
+    /**
+     * 只在显式调用 {@code flush()} 或 {@code close()} 时刷新
+     *
+     * @return 显式刷新的策略
+     */
+    @NotNull
+    public static
+    FlushPolicy explicit() { return EXPLICIT_POLICY; }
+}
@@ -2,18 +2,31 @@ package fybug.nulll.pdstream.strem.io.uilt;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
 
+import fybug.nulll.pdstream.OPB;
+import fybug.nulll.pdstream.OPC;
 import fybug.nulll.pdstream.io.InByte;
 import fybug.nulll.pdstream.io.InString;
+import fybug.nulll.pdstream.strem.io.AsnycRun;
 import fybug.nulll.pdstream.strem.io.HasFiltrer;
+import fybug.nulll.pdstream.strem.io.Pipeline;
 
 import static fybug.nulll.pdstream.OPC.BYTE_DEFAULT_DATA;
 import static fybug.nulll.pdstream.OPC.BYTE_EMPTY_DATA;
@@ -25,15 +38,118 @@ import static fybug.nulll.pdstream.OPC.CHAR_EMPTY_DATA;
  * <p>
  * 读取的数据为空或失败时返回 {@code null}
  * 读取后的数据使用链式过滤器过滤后返回
+ * <p>
+ * 多个流的数据在全部读取后按总长度一次整合
+ * 记录了数据大小的字节流会按照该大小一次分配，该大小只在首次读取时使用
+ * 可使用 {@link #parallel(int)} 同时读取多个流
+ * <p>
+ * 使用 {@link #chunks(int, Consumer)} 和 {@link #charChunks(int, Consumer)} 可分段读取，只占用一段数据的内存
+ * <p>
+ * 流式过滤器只作用于 {@link #bytes()} 和 {@link #chunks(int, Consumer)}，每次读取都是一段完整的数据流
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.2
  * @since uilt 0.0.1
  */
 public
 class SyncIn extends HasFiltrer<SyncIn> {
+    /** 流的数据大小 */
+    private final Map<Closeable, Long> sizes;
+    /** 分段读取时是否使用流水线过滤 */
+    private volatile boolean pipeline = false;
+    /** 最多同时读取的流数 */
+    private volatile int parallel = 1;
+
+    /*--------------------------------------------------------------------------------------------*/
+
     public
-    SyncIn(@NotNull List<Closeable> stream) {super(stream);}
+    SyncIn(@NotNull List<Closeable> stream) { this(stream, Map.of()); }
+
+    /**
+     * 构造读取器
+     *
+     * @param stream 流集合
+     * @param sizes  流中数据大小的提示
+     *
+     * @since SyncIn 0.0.2
+     */
+    public
+    SyncIn(@NotNull List<Closeable> stream, @NotNull Map<Closeable, Long> sizes) {
+        super(stream);
+        this.sizes = new IdentityHashMap<>(sizes);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 分段读取时是否使用流水线过滤
+     * <p>
+     * 开启后 {@link #chunks(int, Consumer)} 和 {@link #charChunks(int, Consumer)} 中的每个过滤器都在共享线程池中作为单独的阶段运行
+     * 读取，每个过滤器和回调可同时处理不同的分段，分段仍按顺序传给回调
+     * 回调会在最后一个过滤器的阶段中调用，全部分段处理完成后才会返回
+     *
+     * @param pipeline 是否开启
+     *
+     * @return this
+     *
+     * @see Pipeline
+     * @since SyncIn 0.0.2
+     */
+    @NotNull
+    public
+    SyncIn pipeline(boolean pipeline) {
+        this.pipeline = pipeline;
+        return this;
+    }
+
+    /**
+     * 并行读取多个流
+     * <p>
+     * 开启后 {@link #bytes()} 和 {@link #chars()} 在共享线程池中同时读取多个流，结果仍按照流的顺序拼接
+     * 总耗时取决于最慢的流，而不是所有流的耗时之和
+     *
+     * @param parallel 最多同时读取的流数，小于 {@code 2} 时依次读取
+     *
+     * @return this
+     *
+     * @see AsnycRun#runAll(int, int, boolean, IntConsumer)
+     * @since SyncIn 0.0.2
+     */
+    @NotNull
+    public
+    SyncIn parallel(int parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * 获取并行读取的数量
+     *
+     * @param def 未开启并行读取时使用的数量
+     *
+     * @return 最多同时读取的流数
+     */
+    int concurrency(int def) {
+        var p = parallel;
+        return p < 2 ? def : p;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取流的读取器
+     * <p>
+     * 会使用并移除该流的数据大小，需在 {@link #runofStream(Function)} 中调用
+     *
+     * @param stream 字节流
+     *
+     * @return 读取器
+     */
+    @NotNull
+    InByte toInByte(@NotNull InputStream stream) {
+        var size = sizes.remove(stream);
+        return size == null ? new InByte(stream) : new InByte(stream, size);
+    }
 
     /*--------------------------------------------------------------------------------------------*/
 
@@ -49,29 +165,374 @@ class SyncIn extends HasFiltrer<SyncIn> {
             if (streams.size() == 0)
                 return BYTE_DEFAULT_DATA;
 
-            // 是否有数据
-            AtomicBoolean nodata = new AtomicBoolean(true);
-
-            var echo = unifiedInput(streams.stream(), true)
-                    // 读取所有的数据，并去除无数据的案例
-                    .map(v -> new InByte((InputStream) v).readAll())
+            var readers = unifiedInput(streams.stream(), true).map(v -> toInByte((InputStream) v))
+                                                              .collect(Collectors.toList());
+            var datas = readAll(readers, InByte::readAll)
+                    // 去除无数据的案例
+                    .stream()
                     .filter(v -> !Arrays.equals(v, BYTE_EMPTY_DATA))
-                    // 整合数据
-                    .peek(v -> nodata.set(false))
-                    .reduce(new ByteArrayOutputStream(), (a, b) -> {
-                        a.writeBytes(b);
-                        return a;
-                    }, (a, b) -> null);
+                    .collect(Collectors.toList());
 
+            // 整合数据，只分配一次
+            var size = datas.stream().mapToLong(v -> v.length).sum();
             // 没有数据
-            if (nodata.get() || echo.size() == 0)
+            if (size == 0)
+                return BYTE_EMPTY_DATA;
+
+            byte[] echo;
+            if (datas.size() == 1)
+                echo = datas.get(0);
+            else {
+                echo = new byte[Math.toIntExact(size)];
+                var mark = 0;
+                for ( var v : datas ){
+                    System.arraycopy(v, 0, echo, mark, v.length);
+                    mark += v.length;
+                }
+            }
+
+            // 流式过滤
+            if (hasStreamF() && (echo = streamF(echo, true)).length == 0)
                 return BYTE_EMPTY_DATA;
 
             // 数据过滤
-            return byteF(echo.toByteArray());
+            return byteF(echo);
         });
     }
 
+    /**
+     * 分段读取全部字节数据
+     * <p>
+     * 每次读取指定大小的数据并传给回调，多个流的数据会连续填充，只有最后一段可能不足指定的大小
+     * 没有过滤器时回调收到的是重复使用的缓冲区，回调返回后其中的数据会被覆盖，需要保留时应复制
+     * 有过滤器时每段数据分别过滤，过滤结果为 {@link OPC#BYTE_EMPTY_DATA} 的分段不会触发回调
+     * 流式过滤器会连续处理所有的分段，其输出的每一段再分别经过其他的过滤器
+     * <p>
+     * 流读取失败时视为该流读取结束
+     *
+     * @param size     每段数据的大小
+     * @param callback 处理每段数据的回调
+     *
+     * @return 读取的字节数，已关闭时为 {@code -1}
+     *
+     * @since SyncIn 0.0.2
+     */
+    public
+    long chunks(int size, @NotNull Consumer<ByteBuffer> callback) {
+        var echo = runofStream(streams -> {
+            var chunk = Math.max(1, size);
+            var buff = OPB.bytes(chunk);
+            var wrap = ByteBuffer.wrap(buff);
+            var inputs = unifiedInput(streams.stream(), true).iterator();
+            InputStream in = null;
+            long total = 0;
+
+            // 过滤并传给回调
+            var hasbytef = hasByteF();
+            var pipe = hasbytef && pipeline ? new Pipeline<>(byteFiltrers(), (byte[] v) -> {
+                if (!Arrays.equals(v, BYTE_EMPTY_DATA))
+                    callback.accept(ByteBuffer.wrap(v));
+            }) : null;
+            Consumer<ByteBuffer> emit = v -> {
+                if (hasbytef) {
+                    var data = new byte[v.remaining()];
+                    v.get(data);
+                    if (pipe != null) {
+                        pipe.offer(data);
+                        return;
+                    }
+                    data = byteF(data);
+                    if (!Arrays.equals(data, BYTE_EMPTY_DATA))
+                        callback.accept(ByteBuffer.wrap(data));
+                } else
+                    callback.accept(v);
+            };
+            var hasstreamf = hasStreamF();
+
+            try {
+                while( true ){
+                    // 填充一段数据
+                    var len = 0;
+                    while( len < chunk && (in != null || inputs.hasNext()) ){
+                        if (in == null)
+                            in = (InputStream) inputs.next();
+                        var readsize = readChunk(in, buff, len, chunk - len);
+                        if (readsize < chunk - len)
+                            in = null;
+                        len += readsize;
+                    }
+                    if (len == 0)
+                        break;
+                    total += len;
+
+                    if (hasstreamf)
+                        streamF(wrap.clear().limit(len), false, emit);
+                    else
+                        emit.accept(wrap.clear().limit(len));
+                }
+
+                // 结束流式过滤
+                if (hasstreamf)
+                    streamF(wrap.clear().limit(0), true, emit);
+            } finally {
+                OPB.free(buff);
+                if (pipe != null)
+                    pipe.end(null);
+            }
+
+            if (pipe != null)
+                pipe.await();
+            return total;
+        });
+        return echo == null ? -1 : (long) echo;
+    }
+
+    /**
+     * 分段读取全部字符数据
+     * <p>
+     * 每次读取指定长度的字符并传给回调，多个流的数据会连续填充，只有最后一段可能不足指定的长度
+     * 没有过滤器时回调收到的是重复使用的缓冲区，回调返回后其中的数据会被覆盖，需要保留时应复制
+     * 有过滤器时每段数据分别过滤，过滤结果为 {@link OPC#CHAR_EMPTY_DATA} 的分段不会触发回调
+     * <p>
+     * 流读取失败时视为该流读取结束
+     *
+     * @param size     每段数据的长度
+     * @param callback 处理每段数据的回调
+     *
+     * @return 读取的字符数，已关闭时为 {@code -1}
+     *
+     * @since SyncIn 0.0.2
+     */
+    public
+    long charChunks(int size, @NotNull Consumer<CharBuffer> callback) {
+        var echo = runofStream(streams -> {
+            var chunk = Math.max(1, size);
+            var buff = OPB.chars(chunk);
+            var wrap = CharBuffer.wrap(buff);
+            var inputs = unifiedInput(streams.stream(), false).iterator();
+            Reader in = null;
+            long total = 0;
+
+            var hascharf = hasCharF();
+            var pipe = hascharf && pipeline ? new Pipeline<>(charFiltrers(), (String v) -> {
+                if (!Objects.equals(v, CHAR_EMPTY_DATA))
+                    callback.accept(CharBuffer.wrap(v));
+            }) : null;
+
+            try {
+                while( true ){
+                    // 填充一段数据
+                    var len = 0;
+                    while( len < chunk && (in != null || inputs.hasNext()) ){
+                        if (in == null)
+                            in = (Reader) inputs.next();
+                        var readsize = readChunk(in, buff, len, chunk - len);
+                        if (readsize < chunk - len)
+                            in = null;
+                        len += readsize;
+                    }
+                    if (len == 0)
+                        break;
+                    total += len;
+
+                    if (pipe != null)
+                        pipe.offer(new String(buff, 0, len));
+                    else if (hascharf) {
+                        var data = charF(new String(buff, 0, len));
+                        if (!Objects.equals(data, CHAR_EMPTY_DATA))
+                            callback.accept(CharBuffer.wrap(data));
+                    } else
+                        callback.accept(wrap.clear().limit(len));
+                }
+            } finally {
+                OPB.free(buff);
+                if (pipe != null)
+                    pipe.end(null);
+            }
+
+            if (pipe != null)
+                pipe.await();
+            return total;
+        });
+        return echo == null ? -1 : (long) echo;
+    }
+
+    /**
+     * 获取可暂停的分段读取器
+     *
+     * @param size  每段数据的大小
+     * @param bytes 是否读取字节数据
+     *
+     * @return 读取器
+     */
+    @NotNull
+    Cursor cursor(int size, boolean bytes) { return new Cursor(size, bytes); }
+
+    /**
+     * <h2>可暂停的分段读取器.</h2>
+     * <p>
+     * 每次调用 {@link #next(List)} 只读取一段数据，读取的数据与 {@link #chunks(int, Consumer)} 和
+     * {@link #charChunks(int, Consumer)} 一致，但每段都是新的 {@link ByteBuffer} 或 {@link String}
+     * 流式过滤器一次输出多段数据时，剩余的数据会保留到之后返回
+     *
+     * @author fybug
+     * @version 0.0.1
+     * @since SyncIn 0.0.2
+     */
+    final
+    class Cursor {
+        /** 每段数据的大小 */
+        private final int chunk;
+        /** 是否为字节数据 */
+        private final boolean bytes;
+
+        // 读取状态
+        private Iterator<Closeable> inputs;
+        private Closeable in;
+        private boolean end = false;
+        /** 已处理未返回的数据 */
+        private final ArrayDeque<Object> ready = new ArrayDeque<>();
+
+        private
+        Cursor(int size, boolean bytes) {
+            chunk = Math.max(1, size);
+            this.bytes = bytes;
+        }
+
+        /**
+         * 读取下一段数据
+         * <p>
+         * 需在 {@link #runofStream(Function)} 中调用
+         *
+         * @param streams 流集合
+         *
+         * @return {@link ByteBuffer} 或 {@link String}，读取完成时为 {@code null}
+         */
+        @Nullable
+        Object next(@NotNull List<Closeable> streams) {
+            if (inputs == null)
+                inputs = unifiedInput(streams.stream(), bytes).iterator();
+
+            while( ready.isEmpty() && !end ){
+                if (bytes)
+                    nextBytes();
+                else
+                    nextChars();
+            }
+            return ready.poll();
+        }
+
+        // 读取一段字节数据
+        private
+        void nextBytes() {
+            var buff = new byte[chunk];
+            var len = 0;
+            while( len < chunk && (in != null || inputs.hasNext()) ){
+                if (in == null)
+                    in = inputs.next();
+                var readsize = readChunk((InputStream) in, buff, len, chunk - len);
+                if (readsize < chunk - len)
+                    in = null;
+                len += readsize;
+            }
+
+            Consumer<ByteBuffer> emit = v -> {
+                var data = new byte[v.remaining()];
+                v.get(data);
+                data = byteF(data);
+                if (!Arrays.equals(data, BYTE_EMPTY_DATA))
+                    ready.add(ByteBuffer.wrap(data));
+            };
+
+            if (len == 0) {
+                end = true;
+                // 结束流式过滤
+                if (hasStreamF())
+                    streamF(ByteBuffer.allocate(0), true, emit);
+            } else if (hasStreamF())
+                streamF(ByteBuffer.wrap(buff, 0, len), false, emit);
+            else
+                emit.accept(ByteBuffer.wrap(buff, 0, len));
+        }
+
+        // 读取一段字符数据
+        private
+        void nextChars() {
+            var buff = OPB.chars(chunk);
+            try {
+                var len = 0;
+                while( len < chunk && (in != null || inputs.hasNext()) ){
+                    if (in == null)
+                        in = inputs.next();
+                    var readsize = readChunk((Reader) in, buff, len, chunk - len);
+                    if (readsize < chunk - len)
+                        in = null;
+                    len += readsize;
+                }
+
+                if (len == 0) {
+                    end = true;
+                    return;
+                }
+
+                var data = charF(new String(buff, 0, len));
+                if (!Objects.equals(data, CHAR_EMPTY_DATA))
+                    ready.add(data);
+            } finally {
+                OPB.free(buff);
+            }
+        }
+    }
+
+    // 读取到填满或流结束，失败时视为结束
+    private static
+    int readChunk(InputStream in, byte[] buff, int off, int len) {
+        var mark = 0;
+        try {
+            int readsize;
+            while( mark < len && (readsize = in.read(buff, off + mark, len - mark)) >= 0 )
+                mark += readsize;
+        } catch ( IOException ignored ) {
+        }
+        return mark;
+    }
+
+    // 读取到填满或流结束，失败时视为结束
+    private static
+    int readChunk(Reader in, char[] buff, int off, int len) {
+        var mark = 0;
+        try {
+            int readsize;
+            while( mark < len && (readsize = in.read(buff, off + mark, len - mark)) >= 0 )
+                mark += readsize;
+        } catch ( IOException ignored ) {
+        }
+        return mark;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 将全部数据传输到输出工具中
+     * <p>
+     * 数据按照字节分段传输，不会经过两边的过滤器，也不会读取全部数据到内存中
+     * 文件之间会直接传输
+     *
+     * @param out 输出工具
+     *
+     * @return 传输的字节数，任意一方已关闭时为 {@code -1}
+     *
+     * @see SyncOut#transfer(List)
+     * @since SyncIn 0.0.2
+     */
+    public
+    long transfer(@NotNull SyncOut out) {
+        var echo = runofStream(streams -> out.transfer(
+                unifiedInput(streams.stream(), true).map(v -> (InputStream) v)
+                                                    .collect(Collectors.toList())));
+        return echo == null ? -1 : (long) echo;
+    }
+
     /**
      * 获取全部字符数据
      *
@@ -84,24 +545,36 @@ class SyncIn extends HasFiltrer<SyncIn> {
             if (streams.size() == 0)
                 return CHAR_DEFAULT_DATA;
 
-            // 是否有数据
-            AtomicBoolean nodata = new AtomicBoolean(true);
-
-            var echo = unifiedInput(streams.stream(), false)
-                    // 读取所有的数据，并去除无数据的案例
-                    .map(v -> new InString((Reader) v).readAll())
+            var readers = unifiedInput(streams.stream(), false).map(v -> new InString((Reader) v))
+                                                               .collect(Collectors.toList());
+            var echo = readAll(readers, InString::readAll)
+                    // 去除无数据的案例
+                    .stream()
                     .filter(v -> !Objects.equals(v, CHAR_EMPTY_DATA))
                     // 整合数据
-                    .peek(v -> nodata.set(false))
-                    .reduce(new StringBuilder(), StringBuilder::append, (a, b) -> null);
+                    .collect(Collectors.joining());
 
             // 没有数据
-            if (nodata.get() || echo.length() == 0)
+            if (echo.isEmpty())
                 return CHAR_EMPTY_DATA;
-            echo.trimToSize();
 
             // 数据过滤
-            return charF(echo.toString());
+            return charF(echo);
         });
     }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    // 读取所有的流，结果与流的顺序一致
+    @SuppressWarnings( "unchecked" )
+    private
+    <R, T> List<T> readAll(List<R> readers, Function<R, T> read) {
+        var p = parallel;
+        if (p < 2 || readers.size() < 2)
+            return readers.stream().map(read).collect(Collectors.toList());
+
+        var echo = new Object[readers.size()];
+        AsnycRun.runAll(echo.length, p, true, i -> echo[i] = read.apply(readers.get(i)));
+        return (List<T>) Arrays.asList(echo);
+    }
 }
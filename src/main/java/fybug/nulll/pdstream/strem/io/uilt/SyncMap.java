@@ -0,0 +1,252 @@
+package fybug.nulll.pdstream.strem.io.uilt;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fybug.nulll.pdstream.OPC;
+import fybug.nulll.pdstream.strem.io.HasFiltrer;
+
+import static fybug.nulll.pdstream.OPC.BYTE_DEFAULT_DATA;
+import static fybug.nulll.pdstream.OPC.BYTE_EMPTY_DATA;
+import static fybug.nulll.pdstream.OPC.CHARSET;
+import static fybug.nulll.pdstream.OPC.CHAR_DEFAULT_DATA;
+import static fybug.nulll.pdstream.OPC.CHAR_EMPTY_DATA;
+
+/**
+ * <h2>内存映射读取器.</h2>
+ * <p>
+ * 将 {@link FileChannel} 或 {@link FileInputStream} 以只读方式映射到内存中，通过 {@link ByteBuffer} 直接访问
+ * 每段映射的最大大小为 {@link OPC#MAP_CHUNK_SIZE}，多个流的映射按顺序排列
+ * 映射在首次访问时建立，只包含当时文件中的数据
+ * <p>
+ * {@link #buffers()} 和 {@link #buffer(long, int)} 返回的数据不会复制也不会经过过滤器
+ * {@link #bytes()} 和 {@link #chars()} 会将数据复制到堆中并过滤，与 {@link SyncIn} 一致
+ * <p>
+ * 存在无法映射的流时视为读取失败
+ *
+ * @author fybug
+ * @version 0.0.1
+ * @see SyncIn
+ * @since uilt 0.0.2
+ */
+public
+class SyncMap extends HasFiltrer<SyncMap> {
+    /** 映射的数据 */
+    private volatile List<MappedByteBuffer> maps;
+    /** 是否映射失败 */
+    private volatile boolean fail = false;
+    /** 总大小 */
+    private volatile long size = 0;
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    public
+    SyncMap(@NotNull List<Closeable> stream) { super(stream); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    // 获取映射，需在 runofStream 中运行
+    @Nullable
+    private
+    List<MappedByteBuffer> maps(List<Closeable> streams) {
+        if (maps != null || fail)
+            return maps;
+
+        var list = new ArrayList<MappedByteBuffer>();
+        long total = 0;
+        try {
+            for ( var v : streams ){
+                FileChannel channel;
+                if (v instanceof FileChannel)
+                    channel = (FileChannel) v;
+                else if (v instanceof FileInputStream)
+                    channel = ((FileInputStream) v).getChannel();
+                else {
+                    fail = true;
+                    return null;
+                }
+
+                // 分段映射
+                var chunk = Math.min(Integer.MAX_VALUE, Math.max(1, OPC.MAP_CHUNK_SIZE));
+                var pos = channel.position();
+                var end = channel.size();
+                while( pos < end ){
+                    var len = Math.min(chunk, end - pos);
+                    list.add(channel.map(FileChannel.MapMode.READ_ONLY, pos, len));
+                    pos += len;
+                    total += len;
+                }
+            }
+        } catch ( IOException | RuntimeException e ) {
+            fail = true;
+            return null;
+        }
+
+        size = total;
+        return maps = Collections.unmodifiableList(list);
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取映射的数据
+     * <p>
+     * 每次获取的缓冲区都是只读的独立视图，可在多个线程中分别使用
+     *
+     * @return 按顺序排列的数据分段，失败或已关闭时返回 {@code null}
+     */
+    @Nullable
+    @SuppressWarnings( "unchecked" )
+    public
+    List<ByteBuffer> buffers() {
+        return (List<ByteBuffer>) runofStream(streams -> {
+            var maps = maps(streams);
+            if (maps == null)
+                return null;
+
+            var echo = new ArrayList<ByteBuffer>(maps.size());
+            maps.forEach(v -> echo.add(v.asReadOnlyBuffer()));
+            return echo;
+        });
+    }
+
+    /**
+     * 获取指定范围的数据
+     * <p>
+     * 范围在一段映射内时返回只读视图，跨越多段时复制到新的缓冲区中
+     *
+     * @param position 数据的起始位置
+     * @param length   数据的长度
+     *
+     * @return 数据，失败，已关闭或超出范围时返回 {@code null}
+     */
+    @Nullable
+    public
+    ByteBuffer buffer(long position, int length) {
+        return (ByteBuffer) runofStream(streams -> {
+            var maps = maps(streams);
+            if (maps == null || position < 0 || length < 0 || position + length > size)
+                return null;
+            if (length == 0)
+                return ByteBuffer.allocate(0);
+
+            // 查找起始的分段
+            int i = 0;
+            var offset = position;
+            while( offset >= maps.get(i).capacity() )
+                offset -= maps.get(i++).capacity();
+
+            var first = maps.get(i);
+            if (offset + length <= first.capacity())
+                return first.asReadOnlyBuffer()
+                            .position((int) offset)
+                            .limit((int) offset + length)
+                            .slice();
+
+            // 跨越多段
+            var echo = ByteBuffer.allocate(length);
+            while( echo.hasRemaining() ){
+                var part = maps.get(i++).asReadOnlyBuffer().position((int) offset);
+                part.limit(part.position() + Math.min(part.remaining(), echo.remaining()));
+                echo.put(part);
+                offset = 0;
+            }
+            return echo.flip();
+        });
+    }
+
+    /**
+     * 获取数据的总大小
+     *
+     * @return 字节数，失败或已关闭时为 {@code -1}
+     */
+    public
+    long size() {
+        var s = runofStream(streams -> maps(streams) == null ? -1L : size);
+        return s == null ? -1 : (long) s;
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 获取全部字节数据
+     * <p>
+     * 复制到堆中并过滤，总大小超过数组的最大长度时视为失败
+     *
+     * @return bytes
+     */
+    @Nullable
+    public
+    byte[] bytes() {
+        var bytes = copyAll();
+        if (bytes == null)
+            return BYTE_EMPTY_DATA;
+        if (bytes.length == 0)
+            return BYTE_DEFAULT_DATA;
+
+        // 数据过滤
+        return byteF(bytes);
+    }
+
+    /**
+     * 获取全部字符数据
+     * <p>
+     * 使用 {@link OPC#CHARSET} 解码后过滤
+     *
+     * @return string
+     */
+    @Nullable
+    public
+    String chars() {
+        var bytes = copyAll();
+        if (bytes == null)
+            return CHAR_EMPTY_DATA;
+        if (bytes.length == 0)
+            return CHAR_DEFAULT_DATA;
+
+        // 数据过滤
+        return charF(new String(bytes, CHARSET));
+    }
+
+    // 复制全部数据，没有流时为空数组，失败或没有数据时为 null
+    @Nullable
+    private
+    byte[] copyAll() {
+        return (byte[]) runofStream(streams -> {
+            if (streams.size() == 0)
+                return new byte[0];
+
+            var maps = maps(streams);
+            if (maps == null || size == 0 || size > Integer.MAX_VALUE - 8)
+                return null;
+
+            var echo = new byte[(int) size];
+            var mark = 0;
+            for ( var v : maps ){
+                var len = v.capacity();
+                v.asReadOnlyBuffer().get(echo, mark, len);
+                mark += len;
+            }
+            return echo;
+        });
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    @Override
+    public
+    void close() {
+        super.close();
+        maps = null;
+        fail = true;
+    }
+}
@@ -1,19 +1,36 @@
 package fybug.nulll.pdstream.strem.io.uilt;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.Flushable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
+import fybug.nulll.pdstream.OPB;
+import fybug.nulll.pdstream.OPC;
 import fybug.nulll.pdstream.OPT;
 import fybug.nulll.pdstream.OutOf;
+import fybug.nulll.pdstream.io.OutByte;
+import fybug.nulll.pdstream.strem.io.AsnycRun;
 import fybug.nulll.pdstream.strem.io.HasFiltrer;
 
 import static fybug.nulll.pdstream.OPC.BYTE_EMPTY_DATA;
 import static fybug.nulll.pdstream.OPC.CHAR_EMPTY_DATA;
+import static fybug.nulll.pdstream.OPC.TRANSFER_BUFF;
 
 /**
  * <h2>阻塞式输出工具.</h2>
@@ -22,9 +39,15 @@ import static fybug.nulll.pdstream.OPC.CHAR_EMPTY_DATA;
  * 输出时将传入的数据使用过滤器过滤后输出
  * 过滤后结果等同于 {@link OPT#BYTE_EMPTY_DATA} || {@link OPT#CHAR_EMPTY_DATA} 时不会输出
  * 使用 {@link #echoData()} 输出的数据不会经过过滤
+ * 默认每次输出后都会刷新，可使用 {@link #flushPolicy(FlushPolicy)} 修改
+ * <p>
+ * 流式过滤器只作用于 {@code bytes} 输出的数据，并在其他过滤器和追加数据之后运行，在关闭时结束
+ * {@code chars}，{@link #echoData()} 和 {@link #transfer(List)} 输出的数据不会经过流式过滤器
+ * <p>
+ * 可使用 {@link #bytes(int, byte[])} 和 {@link #chars(int, String)} 输出到单个流中，不同流的输出可同时进行
  *
  * @author fybug
- * @version 0.0.1
+ * @version 0.0.4
  * @since uilt 0.0.1
  */
 @SuppressWarnings( "all" )
@@ -37,6 +60,17 @@ class SyncOut extends HasFiltrer<SyncOut> implements Flushable {
     private final String appendDara;
     private final byte[] appendbase;
 
+    /** 刷新策略 */
+    private volatile FlushPolicy flushpolicy = FlushPolicy.always();
+    /** 是否并行输出 */
+    private volatile boolean parallel = false;
+    /** 刷新状态 */
+    private final FlushState flushstate = new FlushState();
+    /** 输出到单个流时每个流的刷新状态 */
+    private final FlushState[] sinkflush;
+    /** 上次输出的数据类型 */
+    private boolean lastbytes = true;
+
     /*--------------------------------------------------------------------------------------------*/
 
     public
@@ -49,6 +83,46 @@ class SyncOut extends HasFiltrer<SyncOut> implements Flushable {
         dataarray = datas;
         appendDara = append;
         appendbase = append.getBytes();
+
+        sinkflush = new FlushState[getStreams().size()];
+        for ( int i = 0; i < sinkflush.length; i++ )
+            sinkflush[i] = new FlushState();
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 指定刷新策略
+     *
+     * @param policy 输出后刷新流的策略
+     *
+     * @return this
+     *
+     * @see FlushPolicy
+     */
+    @NotNull
+    public
+    SyncOut flushPolicy(@NotNull FlushPolicy policy) {
+        flushpolicy = policy;
+        return this;
+    }
+
+    /**
+     * 是否并行输出到多个流中
+     * <p>
+     * 过滤后的数据只会处理一次，交由每个流并行写入，全部完成后返回结果
+     * 输出的耗时取决于最慢的流，而不是所有流的耗时之和
+     * 写入作为阻塞任务在共享线程池中运行，线程池可补充线程，不会占满处理异步任务队列的线程
+     *
+     * @param parallel 是否开启
+     *
+     * @return this
+     */
+    @NotNull
+    public
+    SyncOut parallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
     }
 
     /*--------------------------------------------------------------------------------------------*/
@@ -61,19 +135,37 @@ class SyncOut extends HasFiltrer<SyncOut> implements Flushable {
      * @return 是否成功
      */
     public
-    boolean bytes(@NotNull byte[] data) {
+    boolean bytes(@NotNull byte[] data) { return bytes(data, true); }
+
+    /**
+     * 输出一段字节数据
+     *
+     * @param data   要输出的数据
+     * @param filter 是否使用字节过滤器，流式过滤器不受影响
+     *
+     * @return 是否成功
+     */
+    boolean bytes(@NotNull byte[] data, boolean filter) {
         return (boolean) runofStream(streams -> {
             if (streams.size() == 0)
                 return true;
 
             // 过滤数据
-            var da = byteF(data);
+            var da = filter ? byteF(data) : data;
             if (Arrays.equals(da, BYTE_EMPTY_DATA))
                 return true;
 
-            return isSuccessful(unifiedOutput(streams.stream(), true)
-                                        // 写入两次
-                                        .map(v -> v.write(da) && v.writeFlush(appendbase)));
+            // 流式过滤
+            if (hasStreamF()) {
+                var buff = new ByteArrayOutputStream(da.length + appendbase.length);
+                buff.writeBytes(da);
+                buff.writeBytes(appendbase);
+                da = streamF(buff.toByteArray(), false);
+                return da.length == 0 || output(streams, true, da.length, da);
+            }
+
+            // 写入两次
+            return output(streams, true, da.length + appendbase.length, da, appendbase);
         });
     }
 
@@ -94,12 +186,164 @@ class SyncOut extends HasFiltrer<SyncOut> implements Flushable {
             if (Objects.equals(da, CHAR_EMPTY_DATA))
                 return true;
 
-            return isSuccessful(unifiedOutput(strems.stream(), false)
-                                        // 写入两次
-                                        .map(v -> v.write(data) && v.writeFlush(appendDara)));
+            // 写入两次
+            return output(strems, false, da.length() + appendDara.length(), da, appendDara);
+        });
+    }
+
+    /*----------------------------------*/
+
+    /**
+     * 合并输出多段字节数据
+     * <p>
+     * 每段数据分别过滤并追加数据后整合，每个流只写入一次
+     *
+     * @param datas 要输出的数据
+     *
+     * @return 是否成功
+     */
+    public
+    boolean bytes(@NotNull List<byte[]> datas) { return bytes(datas, true); }
+
+    /**
+     * 合并输出多段字节数据
+     *
+     * @param datas  要输出的数据
+     * @param filter 是否使用字节过滤器，流式过滤器不受影响
+     *
+     * @return 是否成功
+     */
+    boolean bytes(@NotNull List<byte[]> datas, boolean filter) {
+        return (boolean) runofStream(streams -> {
+            if (streams.size() == 0)
+                return true;
+
+            // 整合数据
+            var buff = new ByteArrayOutputStream();
+            for ( var data : datas ) {
+                var da = filter ? byteF(data) : data;
+                if (Arrays.equals(da, BYTE_EMPTY_DATA))
+                    continue;
+                buff.writeBytes(da);
+                buff.writeBytes(appendbase);
+            }
+            if (buff.size() == 0)
+                return true;
+
+            var da = buff.toByteArray();
+            // 流式过滤
+            if (hasStreamF() && (da = streamF(da, false)).length == 0)
+                return true;
+
+            return output(streams, true, da.length, da);
+        });
+    }
+
+    /**
+     * 合并输出多段字符数据
+     * <p>
+     * 每段数据分别过滤并追加数据后整合，每个流只写入一次
+     *
+     * @param datas 要输出的数据
+     *
+     * @return 是否成功
+     */
+    public
+    boolean chars(@NotNull List<String> datas) {
+        return (boolean) runofStream(strems -> {
+            if (strems.size() == 0)
+                return true;
+
+            // 整合数据
+            var buff = new StringBuilder();
+            for ( var data : datas ) {
+                var da = charF(data);
+                if (Objects.equals(da, CHAR_EMPTY_DATA))
+                    continue;
+                buff.append(da).append(appendDara);
+            }
+            if (buff.length() == 0)
+                return true;
+
+            return output(strems, false, buff.length(), buff.toString());
         });
     }
 
+    /**
+     * 输出一段字节数据到指定的流中
+     * <p>
+     * 只写入一个流，可与其他流的输出同时进行，但不会与输出到所有流的操作同时进行
+     * 不会经过流式过滤器，按照 {@link #flushPolicy(FlushPolicy)} 刷新该流，未刷新的数据量和刷新时间按每个流单独计算
+     * 调用 {@link #flush()} 或 {@link #flush(int)} 时重新计算
+     *
+     * @param index 流的位置
+     * @param data  要输出的数据
+     *
+     * @return 是否成功，位置超出范围或已关闭时为 {@code false}
+     *
+     * @since SyncOut 0.0.3
+     */
+    public
+    boolean bytes(int index, @NotNull byte[] data) { return bytes(index, data, true); }
+
+    /**
+     * 输出一段字节数据到指定的流中
+     *
+     * @param index  流的位置
+     * @param data   要输出的数据
+     * @param filter 是否使用字节过滤器
+     *
+     * @return 是否成功
+     */
+    boolean bytes(int index, @NotNull byte[] data, boolean filter) {
+        var echo = runofShared(streams -> {
+            if (index < 0 || index >= streams.size())
+                return false;
+
+            var da = filter ? byteF(data) : data;
+            if (Arrays.equals(da, BYTE_EMPTY_DATA))
+                return true;
+            return outputTo(streams, index, true, da, appendbase);
+        });
+        return echo != null && (boolean) echo;
+    }
+
+    /**
+     * 输出一段字符数据到指定的流中
+     *
+     * @param index 流的位置
+     * @param data  要输出的数据
+     *
+     * @return 是否成功，位置超出范围或已关闭时为 {@code false}
+     *
+     * @see #bytes(int, byte[])
+     * @since SyncOut 0.0.3
+     */
+    public
+    boolean chars(int index, @NotNull String data) { return chars(index, data, true); }
+
+    /**
+     * 输出一段字符数据到指定的流中
+     *
+     * @param index  流的位置
+     * @param data   要输出的数据
+     * @param filter 是否使用字符过滤器
+     *
+     * @return 是否成功
+     */
+    boolean chars(int index, @NotNull String data, boolean filter) {
+        var echo = runofShared(streams -> {
+            if (index < 0 || index >= streams.size())
+                return false;
+
+            var da = filter ? charF(data) : data;
+            if (Objects.equals(da, CHAR_EMPTY_DATA))
+                return true;
+            return outputTo(streams, index, false, da, appendDara);
+        });
+        return echo != null && (boolean) echo;
+    }
+
     /**
      * 输出一遍指定的数据
      * <p>
@@ -110,20 +354,309 @@ class SyncOut extends HasFiltrer<SyncOut> implements Flushable {
     public
     boolean echoData() {
         return (boolean) runofStream(streams -> {
-            if (streams.size() == 0)
+            if (streams.size() == 0 || dataarray.size() == 0)
                 return true;
 
-            var stream = unifiedOutput(streams.stream(), true).toArray(OutOf[]::new);
+            var datas = echoArray();
+            long size = 0;
+            for ( var v : datas )
+                size += ((byte[]) v).length;
 
-            var suerrs = isSuccessful(
-                    // 写入全部
-                    Arrays.stream(stream)
-                          .map(v -> isSuccessful(dataarray.stream()
-                                                          .map(d -> v.write(d) &&
-                                                                    v.writeFlush(appendbase)))));
+            // 写入全部
+            return output(streams, true, size, datas);
+        });
+    }
 
-            return suerrs;
+    /**
+     * 输出一遍指定的数据到指定的流中
+     *
+     * @param index 流的位置
+     *
+     * @return 是否成功，位置超出范围或已关闭时为 {@code false}
+     *
+     * @see #echoData()
+     * @since SyncOut 0.0.4
+     */
+    public
+    boolean echoData(int index) {
+        var echo = runofShared(streams -> {
+            if (index < 0 || index >= streams.size())
+                return false;
+            if (dataarray.size() == 0)
+                return true;
+            return outputTo(streams, index, true, echoArray());
         });
+        return echo != null && (boolean) echo;
+    }
+
+    // 每个数据后都追加数据
+    private
+    Object[] echoArray() {
+        var datas = new Object[dataarray.size() * 2];
+        for ( int i = 0; i < dataarray.size(); i++ ) {
+            datas[i * 2] = dataarray.get(i);
+            datas[i * 2 + 1] = appendbase;
+        }
+        return datas;
+    }
+
+    /**
+     * 使用过滤器过滤数据
+     *
+     * @param data 字节或字符数据
+     *
+     * @return 过滤后的数据
+     */
+    Object filtrer(@NotNull Object data) { return data instanceof byte[] ? byteF((byte[]) data) : charF((String) data); }
+
+    /** 获取流的数量，已关闭时为 {@code 0} */
+    int sinks() {
+        var echo = runofShared(List::size);
+        return echo == null ? 0 : (int) echo;
+    }
+
+    /** 获取当前的字节过滤器 */
+    @NotNull
+    List<Function<byte[], byte[]>> byteStages() { return byteFiltrers(); }
+
+    /*----------------------------------*/
+
+    /**
+     * 输出到所有流中
+     * <p>
+     * 按照刷新策略刷新，转化后的流会重复使用
+     * 开启并行输出时除最后一个流外均在共享线程池中写入，全部完成后返回
+     * 开启并行输出时使用 {@link AsnycRun#runAll(int, int, boolean, java.util.function.IntConsumer)} 在共享线程池中写入，当前线程也参与写入，全部完成后返回
+     * @param streams 流集合
+     * @param bytes   是否为字节数据
+     * @param size    数据的大小
+     * @param datas   依次写入的数据
+     *
+     * @return 是否成功
+     */
+    private
+    boolean output(List<Closeable> streams, boolean bytes, long size, Object... datas) {
+        var flush = markFlush(flushstate, size, this::flush);
+        var outs = unifiedOutput(bytes);
+        // 切换数据类型前先写入另一种类型中缓冲的数据
+        if (lastbytes != bytes) {
+            flushOutput(lastbytes);
+            lastbytes = bytes;
+        }
+
+        IntFunction<Boolean> write = i -> {
+            var o = outs.get(i);
+            var ok = true;
+            for ( var d : datas )
+                ok = ok && write(o, d);
+
+            if (flush) {
+                o.flush();
+                // 转化后的流不会刷新原本的流
+                if (o != streams.get(i))
+                    ((OutOf) streams.get(i)).flush();
+            }
+            return ok;
+        };
+
+        boolean successful;
+        if (parallel && outs.size() > 1) {
+            var results = new Boolean[outs.size()];
+            // 写入会阻塞，线程池可补充线程，当前线程也参与写入
+            AsnycRun.runAll(outs.size(), outs.size(), true, i -> {
+                try {
+                    results[i] = write.apply(i);
+                } catch ( Throwable e ) {
+                    results[i] = false;
+                }
+            });
+            successful = isSuccessful(Arrays.stream(results));
+        } else
+            successful = isSuccessful(IntStream.range(0, outs.size()).mapToObj(write));
+
+        if (flush)
+            markFlushed(flushstate);
+        return successful;
+    }
+
+    // 输出到单个流中，需在 runofShared 中运行
+    private
+    boolean outputTo(List<Closeable> streams, int index, boolean bytes, Object... datas) {
+        var stream = streams.get(index);
+        var o = unifiedOutput(bytes).get(index);
+
+        synchronized ( stream ){
+            // 先写入另一种类型中缓冲的数据
+            flushOutput(!bytes, index);
+
+            var ok = true;
+            long size = 0;
+            for ( var d : datas ) {
+                ok = ok && write(o, d);
+                size += d instanceof byte[] ? ((byte[]) d).length : ((String) d).length();
+            }
+
+            // 转化后的流中不保留数据，以免与输出到所有流的数据错序
+            if (o != stream)
+                o.flush();
+            // 每个流单独按照刷新策略刷新
+            var state = sinkflush[index];
+            if (markFlush(state, size, () -> flush(index))) {
+                ((OutOf) stream).flush();
+                markFlushed(state);
+            }
+            return ok;
+        }
+    }
+
+    // 记录未刷新的数据，返回是否需要刷新
+    private
+    boolean markFlush(FlushState state, long size, Runnable flush) {
+        var policy = flushpolicy;
+
+        switch ( policy.mode ) {
+            case FlushPolicy.BYTES:
+                state.unflush += size;
+                return state.unflush >= policy.value;
+            case FlushPolicy.INTERVAL:
+                if (System.nanoTime() - state.lastflush >= TimeUnit.MILLISECONDS.toNanos(policy.value))
+                    return true;
+                // 到达时间后刷新
+                if (!state.flushtask) {
+                    state.flushtask = true;
+                    CompletableFuture.runAsync(flush, CompletableFuture.delayedExecutor(
+                            policy.value, TimeUnit.MILLISECONDS, AsnycRun.sharedPool()));
+                }
+                return false;
+            case FlushPolicy.EXPLICIT:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    // 按照刷新策略刷新所有流
+    private
+    void flushOf(List<Closeable> streams, List<OutOf<?, ?>> outs, long size) {
+        if (!markFlush(flushstate, size, this::flush))
+            return;
+
+        for ( int i = 0; i < outs.size(); i++ ) {
+            outs.get(i).flush();
+            if (outs.get(i) != streams.get(i))
+                ((OutOf) streams.get(i)).flush();
+        }
+        markFlushed(flushstate);
+    }
+
+    // 已刷新
+    private static
+    void markFlushed(FlushState state) {
+        state.unflush = 0;
+        state.lastflush = System.nanoTime();
+    }
+
+    // 写入数据，数据类型与流的类型一致
+    private static
+    boolean write(OutOf<?, ?> out, Object data) { return write(out, data, Integer.MAX_VALUE); }
+
+    // 写入指定长度的数据
+    @SuppressWarnings( "unchecked" )
+    private static
+    boolean write(OutOf<?, ?> out, Object data, int len) { return ((OutOf<?, Object>) out).write(data, len); }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * 将输入流中的数据传输到所有流中
+     * <p>
+     * 数据不经过过滤器，也不会追加数据，传输完成后按照刷新策略刷新
+     * 输入为 {@link FileInputStream} 时，原本为 {@link FileOutputStream} 的流使用
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)} 直接传输
+     * 其余情况使用大小为 {@link OPC#TRANSFER_BUFF} 的缓冲区中转
+     *
+     * @param inputs 要读取的字节流
+     *
+     * @return 从输入流中传输的字节数，已关闭时为 {@code -1}
+     */
+    long transfer(@NotNull List<InputStream> inputs) {
+        var echo = runofStream(streams -> {
+            var outs = unifiedOutput(true);
+            if (!lastbytes) {
+                flushOutput(false);
+                lastbytes = true;
+            }
+
+            long size = 0;
+            var buff = OPB.bytes(TRANSFER_BUFF);
+            try {
+                for ( var in : inputs ){
+                    if (in instanceof FileInputStream) {
+                        var moved = transferFile(((FileInputStream) in).getChannel(), streams, outs, buff);
+                        // 无法获取大小的文件使用缓冲区中转
+                        if (moved >= 0) {
+                            size += moved;
+                            continue;
+                        }
+                    }
+
+                    int len;
+                    while( (len = in.read(buff)) >= 0 ){
+                        for ( var o : outs )
+                            write(o, buff, len);
+                        size += len;
+                    }
+                }
+            } catch ( IOException ignored ) {
+            } finally {
+                OPB.free(buff);
+            }
+
+            flushOf(streams, outs, size);
+            return size;
+        });
+        return echo == null ? -1 : (long) echo;
+    }
+
+    // 从文件中传输，大小未知时返回 -1
+    private
+    long transferFile(FileChannel channel, List<Closeable> streams, List<OutOf<?, ?>> outs, byte[] buff)
+    throws IOException
+    {
+        var position = channel.position();
+        var size = channel.size() - position;
+        if (size <= 0)
+            return -1;
+
+        for ( int i = 0; i < outs.size(); i++ ) {
+            var o = outs.get(i);
+            long done = 0;
+
+            // 直接在文件间传输
+            if (o == streams.get(i) && ((OutByte) o).original() instanceof FileOutputStream) {
+                var target = ((FileOutputStream) ((OutByte) o).original()).getChannel();
+                while( done < size ){
+                    var len = channel.transferTo(position + done, size - done, target);
+                    if (len <= 0)
+                        break;
+                    done += len;
+                }
+            }
+
+            // 使用缓冲区中转
+            var wrap = ByteBuffer.wrap(buff);
+            while( done < size ){
+                wrap.clear().limit((int) Math.min(buff.length, size - done));
+                var len = channel.read(wrap, position + done);
+                if (len <= 0)
+                    break;
+                write(o, buff, len);
+                done += len;
+            }
+        }
+
+        channel.position(position + size);
+        return size;
     }
 
     /*--------------------------------------------------------------------------------------------*/
@@ -132,12 +665,52 @@ class SyncOut extends HasFiltrer<SyncOut> implements Flushable {
     public
     void flush() {
         runofStream(stream -> {
+            // 先写入转化后的流中缓冲的数据
+            flushOutput(true);
+            flushOutput(false);
             stream.forEach(v -> {
                 try {
                     ((Flushable) v).flush();
                 } catch ( IOException ignored ) {
                 }
             });
+            markFlushed(flushstate);
+            flushstate.flushtask = false;
+            // 所有流都已刷新
+            for ( var v : sinkflush ) {
+                markFlushed(v);
+                v.flushtask = false;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 刷新指定的流
+     * <p>
+     * 先写入转化后的流中缓冲的数据，可与其他流的输出同时进行
+     *
+     * @param index 流的位置
+     *
+     * @since SyncOut 0.0.4
+     */
+    public
+    void flush(int index) {
+        runofShared(streams -> {
+            if (index < 0 || index >= streams.size())
+                return null;
+
+            var stream = streams.get(index);
+            synchronized ( stream ){
+                flushOutput(true, index);
+                flushOutput(false, index);
+                try {
+                    ((Flushable) stream).flush();
+                } catch ( IOException ignored ) {
+                }
+                markFlushed(sinkflush[index]);
+                sinkflush[index].flushtask = false;
+            }
             return null;
         });
     }
@@ -145,8 +718,33 @@ class SyncOut extends HasFiltrer<SyncOut> implements Flushable {
     @Override
     public
     void close() {
+        // 结束流式过滤
+        if (hasStreamF())
+            runofStream(streams -> {
+                var da = streamF(new byte[0], true);
+                return da.length == 0 || streams.size() == 0 || output(streams, true, da.length, da);
+            });
         flush();
         super.close();
         dataarray.clear();
     }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    /**
+     * <h2>刷新状态.</h2>
+     *
+     * @author fybug
+     * @version 0.0.1
+     * @since SyncOut 0.0.4
+     */
+    private static final
+    class FlushState {
+        /** 未刷新的数据量 */
+        private long unflush = 0;
+        /** 上次刷新的时间 */
+        private long lastflush = System.nanoTime();
+        /** 是否已有等待中的刷新任务 */
+        private boolean flushtask = false;
+    }
 }
@@ -0,0 +1,53 @@
+package fybug.nulll.pdstream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public
+class OPBTest {
+    @Test
+    public
+    void reuse() {
+        var b = OPB.bytes(100);
+        Assert.assertEquals(b.length, 128);
+        OPB.free(b);
+
+        var hits = OPB.hits();
+        Assert.assertSame(OPB.bytes(120), b);
+        Assert.assertEquals(OPB.hits(), hits + 1);
+        OPB.free(b);
+
+        var c = OPB.chars(1000);
+        Assert.assertEquals(c.length, 1024);
+        OPB.free(c);
+        Assert.assertSame(OPB.chars(1024), c);
+        OPB.free(c);
+
+        var buff = OPB.buffer(64);
+        buff.putInt(1);
+        OPB.free(buff);
+        Assert.assertEquals(OPB.buffer(64).position(), 0);
+    }
+
+    @Test
+    public
+    void outstanding() {
+        var size = OPB.outstanding();
+        var b = OPB.bytes(256);
+        var c = OPB.chars(256);
+        Assert.assertEquals(OPB.outstanding(), size + 256 * 3);
+
+        OPB.free(b);
+        OPB.free(c);
+        Assert.assertEquals(OPB.outstanding(), size);
+    }
+
+    @Test
+    public
+    void large() {
+        var misses = OPB.misses();
+        var b = OPB.bytes(OPC.BUFF_POOL_MAX + 1);
+        Assert.assertEquals(b.length, OPC.BUFF_POOL_MAX + 1);
+        Assert.assertEquals(OPB.misses(), misses + 1);
+        OPB.free(b);
+    }
+}
@@ -1,11 +1,17 @@
 package fybug.nulll.pdstream.io;
+import org.jetbrains.annotations.NotNull;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
+import java.util.Arrays;
+
+import fybug.nulll.pdstream.OPC;
 
 import static fybug.nulll.pdstream.RunTest.testdata;
 
@@ -25,4 +31,53 @@ class ReaderInputStreamTest {
     public
     void read() throws IOException
     { Assert.assertArrayEquals(stream.readAllBytes(), testdata.getBytes()); }
+
+    @Test
+    public
+    void readBulk() throws IOException {
+        var data = testdata.repeat(1000) + "中文";
+        try ( var in = new ReaderInputStream(new StringReader(data)) ) {
+            Assert.assertArrayEquals(in.readAllBytes(), data.getBytes(OPC.CHARSET));
+        }
+    }
+
+    @Test
+    public
+    void readShort() throws IOException {
+        // 数据读完后没有就绪，再次读取视为阻塞
+        var reader = new Reader() {
+            private boolean sent = false;
+
+            @Override
+            public
+            int read(@NotNull char[] cbuf, int off, int len) {
+                Assert.assertFalse("blocking read", sent);
+                testdata.getChars(0, testdata.length(), cbuf, off);
+                sent = true;
+                return testdata.length();
+            }
+
+            @Override
+            public
+            boolean ready() { return !sent; }
+
+            @Override
+            public
+            void close() {}
+        };
+
+        try ( var in = new ReaderInputStream(reader) ) {
+            var buff = new byte[1024];
+            Assert.assertEquals(in.read(buff, 0, buff.length), testdata.length());
+            Assert.assertArrayEquals(Arrays.copyOf(buff, testdata.length()), testdata.getBytes());
+        }
+    }
+
+    @Test
+    public
+    void transferTo() throws IOException {
+        var buff = new ByteArrayOutputStream();
+        Assert.assertEquals(stream.transferTo(buff), testdata.length());
+        Assert.assertArrayEquals(buff.toByteArray(), testdata.getBytes());
+    }
 }
\ No newline at end of file
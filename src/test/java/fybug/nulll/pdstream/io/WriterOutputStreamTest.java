@@ -7,6 +7,8 @@ import org.junit.Test;
 import java.io.CharArrayWriter;
 import java.io.IOException;
 
+import fybug.nulll.pdstream.OPC;
+
 import static fybug.nulll.pdstream.RunTest.testdata;
 
 public
@@ -33,4 +35,29 @@ class WriterOutputStreamTest {
 
         Assert.assertEquals(buff.toString(), testdata);
     }
+
+    @Test
+    public
+    void splitChar() {
+        var bytes = "中文".getBytes(OPC.CHARSET);
+
+        // 拆分多字节字符
+        stream.write(bytes, 0, 2);
+        stream.flush();
+        Assert.assertEquals(buff.toString(), "");
+        stream.write(bytes, 2, bytes.length - 2);
+        stream.flush();
+
+        Assert.assertEquals(buff.toString(), "中文");
+    }
+
+    @Test
+    public
+    void bulk() {
+        var data = testdata.repeat(1000) + "中文";
+        stream.write(data.getBytes(OPC.CHARSET), 0, data.getBytes(OPC.CHARSET).length);
+
+        // 无需刷新即写入
+        Assert.assertEquals(buff.toString(), data);
+    }
 }
\ No newline at end of file
@@ -3,13 +3,19 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 import fybug.nulll.pdstream.strem.io.IOFiltrerTest;
+import fybug.nulll.pdstream.strem.io.SplitFiltrerTest;
+import fybug.nulll.pdstream.strem.io.StreamFiltrerTest;
+import fybug.nulll.pdstream.strem.io.TaskLoopTest;
 import fybug.nulll.pdstream.strem.io.uilt.AsnycInTest;
 import fybug.nulll.pdstream.strem.io.uilt.AsnycOutTest;
+import fybug.nulll.pdstream.strem.io.uilt.FlushPolicyTest;
 import fybug.nulll.pdstream.strem.io.uilt.SyncInTest;
+import fybug.nulll.pdstream.strem.io.uilt.SyncMapTest;
 import fybug.nulll.pdstream.strem.io.uilt.SyncOutTest;
 
 @RunWith( Suite.class )
 @Suite.SuiteClasses( {IOFiltrerTest.class, SyncInTest.class, AsnycInTest.class, SyncOutTest.class,
-                             AsnycOutTest.class} )
+                             AsnycOutTest.class, FlushPolicyTest.class, SyncMapTest.class,
+                             StreamFiltrerTest.class, SplitFiltrerTest.class, TaskLoopTest.class} )
 public
 class RunTest {}
@@ -0,0 +1,93 @@
+package fybug.nulll.pdstream.strem.io;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fybug.nulll.pdstream.OPC;
+import fybug.nulll.pdstream.strem.IOT;
+
+import static fybug.nulll.pdstream.RunTest.testdata;
+
+public
+class SplitFiltrerTest {
+    private static final String data = testdata.repeat(500);
+
+    @Test
+    public
+    void blocks() {
+        var sizes = Collections.synchronizedList(new ArrayList<Integer>());
+        var mask = SplitFiltrer.byteBlocks(100, v -> {
+            sizes.add(v.length);
+            var echo = v.clone();
+            for ( int i = 0; i < echo.length; i++ )
+                echo[i] ^= 0x20;
+            return echo;
+        });
+
+        try ( var in = IOT.RS(new ByteArrayInputStream(data.getBytes(OPC.CHARSET))).filtrerBytes(mask) ) {
+            Assert.assertEquals(new String(in.bytes(), OPC.CHARSET), data.toUpperCase());
+        }
+        Assert.assertEquals(sizes.size(), (data.length() + 99) / 100);
+        Assert.assertTrue(sizes.stream().allMatch(v -> v <= 100));
+    }
+
+    @Test
+    public
+    void lines() {
+        var text = (testdata + "\n").repeat(300);
+        var parts = Collections.synchronizedList(new ArrayList<String>());
+        var out = new ByteArrayOutputStream();
+
+        try ( var o = IOT.OS(out)
+                         .filtrerChars(SplitFiltrer.charLines(50, v -> {
+                             parts.add(v);
+                             return v.toUpperCase();
+                         }), SplitFiltrer.charLines(50, v -> v.replace('J', '-'))) )
+        {
+            Assert.assertTrue(o.chars(text));
+        }
+
+        Assert.assertEquals(out.toString(OPC.CHARSET), text.toUpperCase().replace('J', '-'));
+        // 相邻的过滤器只切分一次，每段都以换行结束
+        Assert.assertTrue(parts.size() > 1);
+        Assert.assertTrue(parts.stream().allMatch(v -> v.endsWith("\n")));
+    }
+
+    @Test
+    public
+    void skip() {
+        var filtrer = SplitFiltrer.charBlocks(16, v -> v.startsWith("a") ? OPC.CHAR_EMPTY_DATA : v);
+        Assert.assertEquals(filtrer.apply(testdata + "b".repeat(16)), "b".repeat(16));
+        Assert.assertEquals(filtrer.apply(testdata.repeat(3)), OPC.CHAR_EMPTY_DATA);
+
+        // 不拆分代理对
+        var emoji = "😀".repeat(10);
+        List<String> parts = Collections.synchronizedList(new ArrayList<>());
+        Assert.assertEquals(SplitFiltrer.charBlocks(3, v -> {
+            parts.add(v);
+            return v;
+        }).apply(emoji), emoji);
+        Assert.assertTrue(parts.stream().noneMatch(v -> Character.isHighSurrogate(v.charAt(v.length() - 1))));
+    }
+
+    @Test
+    public
+    void emptyPart() {
+        var out = new ByteArrayOutputStream();
+
+        // 被清空的段仍会交给后续的过滤器
+        try ( var o = IOT.OS(out)
+                         .filtrerChars(SplitFiltrer.charBlocks(16, v -> v.startsWith("a") ? OPC.CHAR_EMPTY_DATA : v),
+                                       SplitFiltrer.charBlocks(16, v -> v == OPC.CHAR_EMPTY_DATA ? "#" : v)) )
+        {
+            Assert.assertTrue(o.chars(testdata + "b".repeat(16) + testdata));
+        }
+
+        Assert.assertEquals(out.toString(OPC.CHARSET), "#" + "b".repeat(16) + "#");
+    }
+}
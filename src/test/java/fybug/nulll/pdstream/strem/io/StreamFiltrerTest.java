@@ -0,0 +1,146 @@
+package fybug.nulll.pdstream.strem.io;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import fybug.nulll.pdstream.OPC;
+import fybug.nulll.pdstream.strem.IOT;
+
+import static fybug.nulll.pdstream.RunTest.testdata;
+
+public
+class StreamFiltrerTest {
+    private static final String data = testdata.repeat(500);
+
+    @Test
+    public
+    void deflate() {
+        var buff = new ByteArrayOutputStream();
+        try ( var out = IOT.OS(buff).filtrerStream(new DeflateF()) ) {
+            var bytes = data.getBytes(OPC.CHARSET);
+            var half = bytes.length / 2;
+            out.bytes(Arrays.copyOf(bytes, half));
+            out.bytes(Arrays.copyOfRange(bytes, half, bytes.length));
+        }
+        var zip = buff.toByteArray();
+        Assert.assertTrue(zip.length < data.length());
+
+        try ( var in = IOT.RS(new ByteArrayInputStream(zip)).filtrerStream(new InflateF()) ) {
+            Assert.assertEquals(new String(in.bytes(), OPC.CHARSET), data);
+        }
+
+        var echo = new ByteArrayOutputStream();
+        try ( var in = IOT.RS(new ByteArrayInputStream(zip)).filtrerStream(new InflateF()) ) {
+            in.chunks(7, v -> {
+                var b = new byte[v.remaining()];
+                v.get(b);
+                echo.writeBytes(b);
+            });
+        }
+        Assert.assertEquals(new String(echo.toByteArray(), OPC.CHARSET), data);
+    }
+
+    @Test
+    public
+    void rest() {
+        // 只读取完整的字，剩余的输入在下一次调用时接上
+        var buff = new ByteArrayOutputStream();
+        try ( var out = IOT.OS(buff).filtrerStream(new WordF()) ) {
+            out.bytes(new byte[]{ 1, 2, 3 });
+            out.bytes(new byte[]{ 4, 5, 6, 7, 8 });
+        }
+        Assert.assertArrayEquals(buff.toByteArray(), new byte[]{ 4, 3, 2, 1, 8, 7, 6, 5 });
+
+        var filtrer = new IOFiltrer<>() {}.filtrerStream(new WordF());
+        Assert.assertEquals(filtrer.streamF(new byte[]{ 1, 2, 3 }, false).length, 0);
+        Assert.assertArrayEquals(filtrer.streamF(new byte[]{ 4, 5 }, false), new byte[]{ 4, 3, 2, 1 });
+        // 结尾时仍有未读取的输入
+        try {
+            filtrer.streamF(new byte[]{ 6 }, true);
+            Assert.fail("unread input at the end");
+        } catch ( IllegalStateException ignored ) {
+        }
+        Assert.assertArrayEquals(filtrer.streamF(new byte[]{ 1, 2, 3, 4 }, true), new byte[]{ 4, 3, 2, 1 });
+    }
+
+    /*--------------------------------------------------------------------------------------------*/
+
+    // 按 4 字节反转，不保留不完整的字
+    private static
+    class WordF implements StreamFiltrer {
+        @Override
+        public
+        void process(@NotNull ByteBuffer in, @NotNull ByteBuffer out) {
+            while( in.remaining() >= 4 && out.remaining() >= 4 ) {
+                var w = new byte[4];
+                in.get(w);
+                out.put(w[3]).put(w[2]).put(w[1]).put(w[0]);
+            }
+        }
+
+        @Override
+        public
+        boolean finish(@NotNull ByteBuffer out) { return true; }
+
+        @Override
+        public
+        void reset() {}
+    }
+
+    private static
+    class DeflateF implements StreamFiltrer {
+        private final Deflater deflater = new Deflater();
+
+        @Override
+        public
+        void process(@NotNull ByteBuffer in, @NotNull ByteBuffer out) {
+            deflater.setInput(in);
+            while( !deflater.needsInput() && out.hasRemaining() )
+                deflater.deflate(out);
+        }
+
+        @Override
+        public
+        boolean finish(@NotNull ByteBuffer out) {
+            deflater.finish();
+            deflater.deflate(out);
+            return deflater.finished();
+        }
+
+        @Override
+        public
+        void reset() { deflater.reset(); }
+    }
+
+    private static
+    class InflateF implements StreamFiltrer {
+        private final Inflater inflater = new Inflater();
+
+        @Override
+        public
+        void process(@NotNull ByteBuffer in, @NotNull ByteBuffer out) {
+            inflater.setInput(in);
+            try {
+                while( out.hasRemaining() && !inflater.finished() && inflater.inflate(out) > 0 ) ;
+            } catch ( DataFormatException e ) {
+                in.position(in.limit());
+            }
+        }
+
+        @Override
+        public
+        boolean finish(@NotNull ByteBuffer out) { return true; }
+
+        @Override
+        public
+        void reset() { inflater.reset(); }
+    }
+}
@@ -0,0 +1,55 @@
+package fybug.nulll.pdstream.strem.io;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务队列吞吐量
+ * <p>
+ * 直接运行，不在单元测试中运行，参数为每个生产者添加的任务数，默认 1000000
+ * 每种生产者数量预热一轮后运行三轮，输出中位数
+ */
+public
+class TaskLoopBench {
+    public static
+    void main(String[] args) throws InterruptedException {
+        var tasks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        for ( var producers : new int[]{1, 4, 8} ) {
+            run(producers, tasks);
+            var rounds = new double[3];
+            for ( int i = 0; i < rounds.length; i++ )
+                rounds[i] = run(producers, tasks);
+            Arrays.sort(rounds);
+            System.out.printf("producers %d: %.1f M/s%n", producers, rounds[1]);
+        }
+    }
+
+    // 运行一轮，返回每秒运行的百万任务数
+    private static
+    double run(int producers, int tasks) throws InterruptedException {
+        var loop = new AsnycRun.TaskLoop(false);
+        var remain = new AtomicLong((long) producers * tasks);
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(1);
+        Runnable task = () -> {
+            if (remain.decrementAndGet() == 0)
+                done.countDown();
+        };
+
+        for ( int p = 0; p < producers; p++ )
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch ( InterruptedException ignored ) {
+                }
+                for ( int i = 0; i < tasks; i++ )
+                    loop.appendRun(task);
+            }).start();
+
+        var begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return (double) producers * tasks * 1000 / (System.nanoTime() - begin);
+    }
+}
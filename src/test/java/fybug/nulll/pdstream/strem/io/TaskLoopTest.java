@@ -0,0 +1,69 @@
+package fybug.nulll.pdstream.strem.io;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public
+class TaskLoopTest {
+    @Test
+    public
+    void producers() throws Exception {
+        var producers = 8;
+        var count = 20000;
+        var loop = new AsnycRun.TaskLoop(false);
+        // 只在处理线程中访问
+        var next = new int[producers];
+        var disorder = new AtomicInteger();
+        var total = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(producers * count);
+
+        var threads = new Thread[producers];
+        for ( int p = 0; p < producers; p++ ) {
+            var id = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch ( InterruptedException ignored ) {
+                }
+                for ( int i = 0; i < count; i++ ) {
+                    var seq = i;
+                    loop.appendRun(() -> {
+                        // 同一生产者的任务按添加顺序运行
+                        if (next[id] != seq)
+                            disorder.incrementAndGet();
+                        next[id] = seq + 1;
+                        total.incrementAndGet();
+                        done.countDown();
+                    });
+                }
+            });
+            threads[p].start();
+        }
+
+        start.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        for ( var v : threads )
+            v.join();
+        Assert.assertEquals(disorder.get(), 0);
+        Assert.assertEquals(total.get(), producers * count);
+    }
+
+    @Test
+    public
+    void wakeup() throws Exception {
+        var loop = new AsnycRun.TaskLoop(false);
+        // 每次都在队列处理完成后同时添加，不会丢失唤醒
+        for ( int i = 0; i < 2000; i++ ) {
+            var done = new CountDownLatch(2);
+            var other = new Thread(() -> loop.appendRun(done::countDown));
+            other.start();
+            loop.appendRun(done::countDown);
+            Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+            other.join();
+        }
+    }
+}
@@ -5,7 +5,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.CharArrayReader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import fybug.nulll.pdstream.OPC;
 import fybug.nulll.pdstream.strem.IOT;
@@ -40,6 +47,18 @@ class AsnycInTest {
     public
     void chars() { in.chars(v -> Assert.assertEquals(v, testdata + testdata)); }
 
+    @Test
+    public
+    void futureBytes() throws Exception {
+        Assert.assertEquals(new String(in.futureBytes().get(1, TimeUnit.SECONDS), OPC.CHARSET),
+                            testdata + testdata);
+    }
+
+    @Test
+    public
+    void futureChars() throws Exception
+    { Assert.assertEquals(in.futureChars().get(1, TimeUnit.SECONDS), testdata + testdata); }
+
     @Test
     public
     void subBytes() { in.subBytes(v -> Assert.assertArrayEquals(v, testdata.getBytes())); }
@@ -47,4 +66,141 @@ class AsnycInTest {
     @Test
     public
     void subChars() { in.subChars(v -> Assert.assertEquals(v, testdata)); }
-}
\ No newline at end of file
+
+    @Test
+    public
+    void subBytesAny() throws Exception {
+        // 第一个流在其他流读取完成后才返回数据
+        var rest = new CountDownLatch(2);
+        var first = new ByteArrayInputStream("a".getBytes()) {
+            @Override
+            public synchronized
+            int read(byte[] b, int off, int len) {
+                try {
+                    rest.await(2, TimeUnit.SECONDS);
+                } catch ( InterruptedException ignored ) {
+                }
+                return super.read(b, off, len);
+            }
+        };
+
+        var order = new StringBuilder();
+        var done = new CountDownLatch(3);
+        var any = IOT.R(first)
+                     .append(new ByteArrayInputStream("b".getBytes()))
+                     .append(new ByteArrayInputStream("c".getBytes()))
+                     .async()
+                     .parallel(3);
+        any.subBytesAny(v -> {
+            order.append(new String(v));
+            rest.countDown();
+            done.countDown();
+        });
+
+        Assert.assertTrue(done.await(3, TimeUnit.SECONDS));
+        Assert.assertEquals(order.charAt(2), 'a');
+        any.close();
+    }
+
+    @Test
+    public
+    void publisher() throws Exception {
+        var buff = new ByteArrayOutputStream();
+        var complete = new CountDownLatch(1);
+        var first = new CountDownLatch(1);
+        var count = new AtomicInteger();
+        var subscription = new AtomicReference<Flow.Subscription>();
+
+        var publisher = in.publisher(10);
+        publisher.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public
+            void onSubscribe(Flow.Subscription s) {
+                subscription.set(s);
+                s.request(1);
+            }
+
+            @Override
+            public
+            void onNext(ByteBuffer item) {
+                buff.write(item.array(), item.arrayOffset() + item.position(), item.remaining());
+                count.incrementAndGet();
+                first.countDown();
+            }
+
+            @Override
+            public
+            void onError(Throwable throwable) {}
+
+            @Override
+            public
+            void onComplete() { complete.countDown(); }
+        });
+
+        // 只读取请求的数量
+        Assert.assertTrue(first.await(1, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        Assert.assertEquals(count.get(), 1);
+
+        subscription.get().request(Long.MAX_VALUE);
+        Assert.assertTrue(complete.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(new String(buff.toByteArray(), OPC.CHARSET), testdata + testdata);
+        Assert.assertEquals(count.get(), (testdata.length() * 2 + 9) / 10);
+
+        // 只可订阅一次
+        var error = new AtomicReference<Throwable>();
+        publisher.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public
+            void onSubscribe(Flow.Subscription s) {}
+
+            @Override
+            public
+            void onNext(ByteBuffer item) {}
+
+            @Override
+            public
+            void onError(Throwable throwable) { error.set(throwable); }
+
+            @Override
+            public
+            void onComplete() {}
+        });
+        Assert.assertTrue(error.get() instanceof IllegalStateException);
+    }
+
+    @Test
+    public
+    void charPublisher() throws Exception {
+        var buff = new StringBuilder();
+        var complete = new CountDownLatch(1);
+        in.filtrerChars(String::toUpperCase).charPublisher(7).subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription s;
+
+            @Override
+            public
+            void onSubscribe(Flow.Subscription s) {
+                this.s = s;
+                s.request(1);
+            }
+
+            @Override
+            public
+            void onNext(CharSequence item) {
+                buff.append(item);
+                s.request(1);
+            }
+
+            @Override
+            public
+            void onError(Throwable throwable) {}
+
+            @Override
+            public
+            void onComplete() { complete.countDown(); }
+        });
+
+        Assert.assertTrue(complete.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(buff.toString(), (testdata + testdata).toUpperCase());
+    }
+}
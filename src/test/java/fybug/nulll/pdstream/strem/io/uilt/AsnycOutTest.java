@@ -6,8 +6,22 @@ import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 
+import fybug.nulll.pdstream.OPC;
 import fybug.nulll.pdstream.strem.IOT;
+import fybug.nulll.pdstream.strem.io.AsnycRun;
+import fybug.nulll.pdstream.strem.io.QueueBound;
 
 import static fybug.nulll.pdstream.RunTest.testdata;
 
@@ -61,4 +75,452 @@ class AsnycOutTest {
         Assert.assertArrayEquals(bytestream.toByteArray(), testdata.getBytes());
         Assert.assertEquals(charstream.toString(), testdata);
     }
-}
\ No newline at end of file
+
+    @Test
+    public
+    void futureBytes() throws Exception {
+        Assert.assertTrue(out.futureBytes(testdata.getBytes())
+                             .thenCompose(v -> out.futureEchoData())
+                             .get(1, TimeUnit.SECONDS));
+        out.flush();
+        Thread.sleep(300);
+
+        Assert.assertArrayEquals(bytestream.toByteArray(), (testdata + testdata).getBytes());
+        Assert.assertEquals(charstream.toString(), testdata + testdata);
+    }
+
+    @Test
+    public
+    void sharedOrder() throws InterruptedException {
+        var outs = new AsnycOut[64];
+        var streams = new ByteArrayOutputStream[outs.length];
+        var latch = new CountDownLatch(outs.length);
+
+        for ( int i = 0; i < outs.length; i++ ) {
+            streams[i] = new ByteArrayOutputStream();
+            outs[i] = IOT.OA(streams[i]);
+            for ( int j = 0; j < 10; j++ )
+                outs[i].chars(String.valueOf(j));
+            outs[i].chars("", v -> latch.countDown());
+        }
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for ( int i = 0; i < outs.length; i++ ) {
+            Assert.assertEquals(streams[i].toString(), "0123456789");
+            outs[i].close();
+        }
+    }
+
+    @Test
+    public
+    void capacity() throws Exception {
+        var entered = new CountDownLatch(1);
+        var gate = new CountDownLatch(1);
+        var sink = new ByteArrayOutputStream();
+        var slow = IOT.OA(gated(entered, gate, sink)).capacity(2, false, QueueBound.Policy.DROP_OLDEST);
+
+        // 第一个任务阻塞在输出中
+        var first = slow.futureChars("a");
+        Assert.assertTrue(entered.await(1, TimeUnit.SECONDS));
+
+        var drop = slow.futureChars("b");
+        var second = slow.futureChars("c");
+        var third = slow.futureChars("d");
+        Assert.assertEquals(slow.queued(), 2);
+        Assert.assertFalse(drop.get(1, TimeUnit.SECONDS));
+
+        gate.countDown();
+        Assert.assertTrue(first.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(second.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(third.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(sink.toString(), "acd");
+        Assert.assertEquals(slow.queued(), 0);
+        slow.close();
+    }
+
+    @Test
+    public
+    void future() throws Exception {
+        var entered = new CountDownLatch(1);
+        var gate = new CountDownLatch(1);
+        var sink = new ByteArrayOutputStream();
+        var slow = IOT.OA(gated(entered, gate, sink)).capacity(1, false, QueueBound.Policy.FUTURE);
+
+        // 第一个任务阻塞在输出中
+        var first = slow.futureChars("a");
+        Assert.assertTrue(entered.await(1, TimeUnit.SECONDS));
+
+        var second = slow.futureChars("b");
+        var third = slow.futureChars("c");
+        // 等待的任务也已满
+        var reject = slow.futureChars("d");
+        var space = slow.awaitSpace();
+        Assert.assertFalse(reject.get(1, TimeUnit.SECONDS));
+        Assert.assertFalse(space.isDone());
+
+        gate.countDown();
+        Assert.assertTrue(first.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(second.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(third.get(1, TimeUnit.SECONDS));
+        space.get(1, TimeUnit.SECONDS);
+        Assert.assertEquals(sink.toString(), "abc");
+        slow.close();
+    }
+
+    @Test
+    public
+    void recapacity() throws Exception {
+        var entered = new CountDownLatch(1);
+        var gate = new CountDownLatch(1);
+        var sink = new ByteArrayOutputStream();
+        var slow = IOT.OA(gated(entered, gate, sink)).capacity(1, false, QueueBound.Policy.FUTURE);
+
+        var first = slow.futureChars("a");
+        Assert.assertTrue(entered.await(1, TimeUnit.SECONDS));
+        var second = slow.futureChars("b");
+        var wait = slow.futureChars("c");
+
+        // 原本的限制中等待的输出被丢弃
+        slow.capacity(4, false, QueueBound.Policy.FAIL);
+        Assert.assertFalse(wait.get(1, TimeUnit.SECONDS));
+
+        gate.countDown();
+        Assert.assertTrue(first.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(second.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(sink.toString(), "ab");
+        slow.close();
+    }
+
+    @Test
+    public
+    void coalesce() throws Exception {
+        var entered = new CountDownLatch(1);
+        var gate = new CountDownLatch(1);
+        var writes = new AtomicInteger();
+        var sink = new ByteArrayOutputStream() {
+            @Override
+            public synchronized
+            void write(byte[] b, int off, int len) {
+                writes.incrementAndGet();
+                super.write(b, off, len);
+            }
+        };
+        var merge = IOT.O(gated(entered, gate, sink)).asyncPrintln().coalesce(true).filtrerChars(String::toUpperCase);
+
+        merge.chars("a");
+        Assert.assertTrue(entered.await(1, TimeUnit.SECONDS));
+        merge.chars("b");
+        merge.chars("c");
+        var last = merge.futureChars("d");
+
+        gate.countDown();
+        Assert.assertTrue(last.get(1, TimeUnit.SECONDS));
+        var line = System.lineSeparator();
+        Assert.assertEquals(sink.toString(), "A" + line + "B" + line + "C" + line + "D" + line);
+        // 第一个数据，之后合并的数据
+        Assert.assertEquals(writes.get(), 2);
+        merge.close();
+    }
+
+    @Test
+    public
+    void pipeline() throws Exception {
+        var sink = new ByteArrayOutputStream();
+        var piped = IOT.O(sink).async()
+                       .filtrerBytes(v -> new String(v).toUpperCase().getBytes(), v -> {
+                           if (v[0] == 'B')
+                               throw new IllegalStateException();
+                           return v;
+                       })
+                       .pipeline();
+
+        piped.bytes("a".getBytes());
+        var fail = piped.futureBytes("b".getBytes());
+        piped.chars("c");
+        var last = piped.futureBytes("d".getBytes());
+
+        Assert.assertTrue(last.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(fail.isCompletedExceptionally());
+        Assert.assertEquals(sink.toString(), "AcD");
+
+        // 关闭时完成流水线中的输出
+        var closed = piped.futureBytes("e".getBytes());
+        piped.close();
+        Assert.assertTrue(closed.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(sink.toString(), "AcDE");
+    }
+
+    @Test
+    public
+    void partition() throws Exception {
+        var gate = new CountDownLatch(1);
+        var slow = new ByteArrayOutputStream();
+        var fast = new ByteArrayOutputStream();
+        var pool = Executors.newFixedThreadPool(2);
+        var parts = IOT.O(gated(new CountDownLatch(1), gate, slow)).append(fast).async().threadPool(pool).partition(2);
+
+        parts.bytes(0, "a".getBytes());
+        parts.chars(0, "b");
+        parts.bytes(1, "c".getBytes());
+        var last = parts.futureChars(1, "d");
+
+        // 阻塞的流不影响其他流
+        Assert.assertTrue(last.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(fast.toString(), "cd");
+        Assert.assertEquals(slow.size(), 0);
+
+        // 关闭时等待所有分区
+        var closed = parts.futureBytes(0, "f".getBytes());
+        gate.countDown();
+        Assert.assertFalse(parts.futureBytes(2, "e".getBytes()).get(1, TimeUnit.SECONDS));
+        parts.close();
+        Assert.assertTrue(closed.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(slow.toString(), "abf");
+        pool.shutdown();
+    }
+
+    @Test
+    public
+    void repartition() throws Exception {
+        var gate = new CountDownLatch(1);
+        var closed = new CountDownLatch(1);
+        var sink = new ByteArrayOutputStream() {
+            @Override
+            public
+            void close() { closed.countDown(); }
+        };
+        var parts = IOT.OA(gated(new CountDownLatch(1), gate, sink)).partition(2);
+
+        parts.bytes(0, "a".getBytes());
+        var last = parts.futureBytes(0, "b".getBytes());
+        // 原本的分区中的任务完成后才关闭
+        parts.partition(3);
+        parts.close();
+        gate.countDown();
+        Assert.assertTrue(last.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(closed.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(sink.toString(), "ab");
+    }
+
+    @Test
+    public
+    void perSink() throws Exception {
+        var entered = new CountDownLatch(1);
+        var gate = new CountDownLatch(1);
+        var slow = new ByteArrayOutputStream();
+        var fast = new ByteArrayOutputStream();
+        var pool = Executors.newFixedThreadPool(2);
+        var lanes = IOT.O(gated(entered, gate, slow)).append(fast).async().threadPool(pool)
+                       .perSink(2, false, QueueBound.Policy.FAIL);
+
+        var first = lanes.futureBytes("a".getBytes());
+        Assert.assertTrue(entered.await(1, TimeUnit.SECONDS));
+        written(fast, 1);
+        lanes.chars("b");
+        var third = lanes.futureBytes("c".getBytes());
+        // 较快的流已输出，较慢的流已满
+        written(fast, 3);
+        var drop = lanes.futureBytes("d".getBytes());
+
+        Assert.assertFalse(drop.get(1, TimeUnit.SECONDS));
+        Assert.assertFalse(first.isDone());
+        Assert.assertEquals(fast.toString(), "abcd");
+        Assert.assertEquals(lanes.backlog(0), 3);
+        Assert.assertEquals(lanes.backlog(1), 0);
+
+        gate.countDown();
+        Assert.assertTrue(first.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(third.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(slow.toString(), "abc");
+        Assert.assertEquals(lanes.backlog(0), 0);
+        Assert.assertEquals(lanes.lag(0), 0);
+
+        lanes.close();
+        pool.shutdown();
+    }
+
+    @Test
+    public
+    void spill() throws Exception {
+        var entered = new CountDownLatch(1);
+        var gate = new CountDownLatch(1);
+        var sink = new ByteArrayOutputStream();
+        var writer = new CharArrayWriter();
+        var dir = Files.createTempDirectory("pdstream-spill");
+        var spill = IOT.O(gated(entered, gate, sink)).append(writer).async().spillTo(dir)
+                       .capacity(4, true, QueueBound.Policy.SPILL);
+
+        spill.bytes("a".getBytes());
+        Assert.assertTrue(entered.await(1, TimeUnit.SECONDS));
+        spill.bytes("bb".getBytes()).chars("cc");
+        // 超出容量的数据写入磁盘
+        spill.bytes("dddd".getBytes());
+        // 不成对的代理字符也需原样读回
+        var last = spill.futureChars("\u00e9\ud800");
+        Assert.assertEquals(spill.queued(), 4);
+        Assert.assertTrue(spill.spilled() > 0);
+        // 已溢出后不再更换溢出文件
+        var other = Files.createTempDirectory("pdstream-spill");
+        var size = spill.spilled();
+        spill.spillTo(other);
+        Assert.assertEquals(spill.spilled(), size);
+
+        gate.countDown();
+        Assert.assertTrue(last.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(sink.toString(StandardCharsets.UTF_8).startsWith("abbccdddd\u00e9"));
+        Assert.assertEquals(writer.toString(), "abbccdddd\u00e9\ud800");
+        // 全部读回后删除
+        Assert.assertEquals(spill.spilled(), 0);
+
+        spill.close();
+        try ( var files = Files.list(dir) ) {
+            Assert.assertEquals(files.count(), 0);
+        }
+        Files.delete(dir);
+        Files.delete(other);
+    }
+
+    @Test
+    public
+    void blocking() throws Exception {
+        // 阻塞的流多于共享线程池的线程数
+        var gate = new CountDownLatch(1);
+        var started = new CountDownLatch(OPC.ASYNC_POOL_SIZE + 1);
+        var stalled = new ArrayList<AsnycOut>();
+        for ( int i = 0; i <= OPC.ASYNC_POOL_SIZE; i++ )
+            stalled.add(IOT.O(new OutputStream() {
+                @Override
+                public
+                void write(int b) {
+                    started.countDown();
+                    try {
+                        gate.await();
+                    } catch ( InterruptedException ignored ) {
+                    }
+                }
+            }).async().bytes("a".getBytes()));
+
+        Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+        // 其他实例仍可输出
+        Assert.assertTrue(out.futureBytes(testdata.getBytes()).get(1, TimeUnit.SECONDS));
+
+        gate.countDown();
+        stalled.forEach(AsnycOut::close);
+    }
+
+    @Test
+    public
+    void bounded() throws Exception {
+        // 阻塞的流多于最大线程数
+        var pool = AsnycRun.boundedPool(1, 3);
+        var gate = new CountDownLatch(1);
+        var started = new CountDownLatch(6);
+        var stalled = new ArrayList<AsnycOut>();
+        for ( int i = 0; i < 6; i++ )
+            stalled.add(IOT.O(new OutputStream() {
+                @Override
+                public
+                void write(int b) {
+                    started.countDown();
+                    try {
+                        gate.await();
+                    } catch ( InterruptedException ignored ) {
+                    }
+                }
+            }).async().threadPool(pool).bytes("a".getBytes()));
+
+        // 补充的线程不超过最大线程数，其余的流等待
+        Assert.assertFalse(started.await(300, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(started.getCount(), 3);
+        Assert.assertTrue(pool.getPoolSize() <= 3);
+
+        gate.countDown();
+        Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+        stalled.forEach(AsnycOut::close);
+        pool.shutdown();
+    }
+
+    // 开始写入时通知，等待开关打开后再写入指定的流
+    private static
+    OutputStream gated(CountDownLatch entered, CountDownLatch gate, OutputStream sink) {
+        return new OutputStream() {
+            @Override
+            public
+            void write(int b) throws IOException { write(new byte[]{(byte) b}, 0, 1); }
+
+            @Override
+            public
+            void write(byte[] b, int off, int len) throws IOException {
+                entered.countDown();
+                try {
+                    gate.await();
+                } catch ( InterruptedException ignored ) {
+                }
+                sink.write(b, off, len);
+            }
+
+            @Override
+            public
+            void close() throws IOException { sink.close(); }
+        };
+    }
+
+    // 等待流中写入指定的字节数
+    private static
+    void written(ByteArrayOutputStream stream, int size) throws InterruptedException {
+        for ( int i = 0; i < 100 && stream.size() < size; i++ )
+            Thread.sleep(10);
+    }
+
+    @Test
+    public
+    void subscriber() throws Exception {
+        var sink = new ByteArrayOutputStream();
+        var written = new AtomicInteger();
+        var sub = IOT.O(new OutputStream() {
+            @Override
+            public
+            void write(int b) { write(new byte[]{(byte) b}, 0, 1); }
+
+            @Override
+            public
+            void write(byte[] b, int off, int len) {
+                written.incrementAndGet();
+                sink.write(b, off, len);
+            }
+        }).async();
+
+        // 记录请求的数量
+        var requested = new AtomicLong();
+        var overrun = new AtomicInteger();
+        var sent = new AtomicInteger();
+        var done = new CountDownLatch(1);
+        var expect = new StringBuilder();
+        for ( int i = 0; i < 50; i++ )
+            expect.append(i % 10);
+
+        var subscriber = sub.byteSubscriber(4);
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public synchronized
+            void request(long n) {
+                requested.addAndGet(n);
+                if (requested.get() - written.get() > 4)
+                    overrun.incrementAndGet();
+                while( sent.get() < requested.get() && sent.get() < 50 )
+                    subscriber.onNext(String.valueOf(sent.getAndIncrement() % 10).getBytes());
+                if (written.get() == 50)
+                    done.countDown();
+            }
+
+            @Override
+            public
+            void cancel() {}
+        });
+
+        Assert.assertTrue(done.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals(sink.toString(), expect.toString());
+        Assert.assertEquals(overrun.get(), 0);
+        sub.close();
+    }
+}
@@ -0,0 +1,100 @@
+package fybug.nulll.pdstream.strem.io.uilt;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+
+import fybug.nulll.pdstream.OPB;
+import fybug.nulll.pdstream.strem.IOT;
+
+import static fybug.nulll.pdstream.RunTest.testdata;
+
+public
+class FlushPolicyTest {
+    private SyncOut out;
+    private ByteArrayOutputStream bytestream;
+
+    @Before
+    public
+    void setUp() {
+        bytestream = new ByteArrayOutputStream();
+        out = IOT.OS(new BufferedOutputStream(bytestream));
+    }
+
+    @After
+    public
+    void tearDown() { out.close(); }
+
+    @Test
+    public
+    void always() {
+        out.bytes(testdata.getBytes());
+        Assert.assertArrayEquals(bytestream.toByteArray(), testdata.getBytes());
+    }
+
+    @Test
+    public
+    void bytes() {
+        out.flushPolicy(FlushPolicy.bytes(testdata.length() * 2));
+
+        out.bytes(testdata.getBytes());
+        Assert.assertEquals(bytestream.size(), 0);
+        out.bytes(testdata.getBytes());
+        Assert.assertArrayEquals(bytestream.toByteArray(), (testdata + testdata).getBytes());
+    }
+
+    @Test
+    public
+    void sink() {
+        out.flushPolicy(FlushPolicy.bytes(testdata.length() * 2));
+
+        // 输出到单个流时同样按照策略刷新
+        out.bytes(0, testdata.getBytes());
+        Assert.assertEquals(bytestream.size(), 0);
+        out.bytes(0, testdata.getBytes());
+        Assert.assertArrayEquals(bytestream.toByteArray(), (testdata + testdata).getBytes());
+    }
+
+    @Test
+    public
+    void interval() throws InterruptedException {
+        out.flushPolicy(FlushPolicy.interval(100));
+
+        out.bytes(testdata.getBytes());
+        Assert.assertEquals(bytestream.size(), 0);
+        Thread.sleep(300);
+        Assert.assertArrayEquals(bytestream.toByteArray(), testdata.getBytes());
+    }
+
+    @Test
+    public
+    void explicit() {
+        out.flushPolicy(FlushPolicy.explicit());
+
+        out.bytes(testdata.getBytes());
+        out.chars(testdata);
+        out.bytes(testdata.getBytes());
+        Assert.assertEquals(bytestream.size(), 0);
+        out.flush();
+        Assert.assertArrayEquals(bytestream.toByteArray(), (testdata + testdata + testdata).getBytes());
+    }
+
+    @Test
+    public
+    void close() {
+        var writer = new CharArrayWriter();
+        var size = OPB.outstanding();
+        var chars = IOT.OS(writer);
+        chars.flushPolicy(FlushPolicy.explicit());
+
+        // 关闭时写入转化后的流中缓冲的数据并归还缓冲区
+        chars.bytes(testdata.getBytes());
+        chars.close();
+        Assert.assertEquals(writer.toString(), testdata);
+        Assert.assertEquals(OPB.outstanding(), size);
+    }
+}
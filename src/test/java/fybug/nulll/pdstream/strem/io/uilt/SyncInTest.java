@@ -5,8 +5,19 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import fybug.nulll.pdstream.OPB;
 import fybug.nulll.pdstream.OPC;
 import fybug.nulll.pdstream.strem.IOT;
 
@@ -37,4 +48,138 @@ class SyncInTest {
     public
     void chars()
     { Assert.assertEquals(in.chars(), testdata + testdata); }
-}
\ No newline at end of file
+
+    @Test
+    public
+    void sizeHint() {
+        var data = testdata.getBytes();
+        // 准确，偏小，偏大
+        try ( var in = IOT.R(new ByteArrayInputStream(data))
+                          .append(new ByteArrayInputStream(data), data.length)
+                          .append(new ByteArrayInputStream(data), 3)
+                          .append(new ByteArrayInputStream(data), data.length * 2L)
+                          .sync() ) {
+            Assert.assertEquals(new String(in.bytes(), OPC.CHARSET), testdata.repeat(4));
+        }
+
+        // 超过缓存分类的提示分段扩容，远大于实际数据的提示不一次分配
+        var large = testdata.repeat(OPB.MAX_SIZE / testdata.length() * 3 + 1).getBytes();
+        try ( var in = IOT.R(new ByteArrayInputStream(new byte[0]))
+                          .append(new ByteArrayInputStream(large), large.length)
+                          .append(new ByteArrayInputStream(data), 3L << 30)
+                          .sync() ) {
+            var echo = in.bytes();
+            Assert.assertEquals(echo.length, large.length + data.length);
+            Assert.assertEquals(new String(echo, OPC.CHARSET), new String(large, OPC.CHARSET) + testdata);
+        }
+    }
+
+    @Test
+    public
+    void transfer() {
+        var bytes = new ByteArrayOutputStream();
+        var chars = new StringWriter();
+        try ( var out = IOT.O(bytes).append(chars).sync() ) {
+            Assert.assertEquals(in.transfer(out), testdata.length() * 2L);
+        }
+        Assert.assertEquals(new String(bytes.toByteArray(), OPC.CHARSET), testdata + testdata);
+        Assert.assertEquals(chars.toString(), testdata + testdata);
+    }
+
+    @Test
+    public
+    void transferFile() throws IOException {
+        var from = Files.createTempFile("pdstream", ".in");
+        var to = Files.createTempFile("pdstream", ".out");
+        try {
+            Files.writeString(from, testdata.repeat(100), OPC.CHARSET);
+            var copy = new ByteArrayOutputStream();
+
+            Assert.assertEquals(IOT.R(from).transfer(IOT.O(to).append(copy)), testdata.length() * 100L);
+            Assert.assertEquals(Files.readString(to, OPC.CHARSET), testdata.repeat(100));
+            Assert.assertEquals(new String(copy.toByteArray(), OPC.CHARSET), testdata.repeat(100));
+        } finally {
+            Files.deleteIfExists(from);
+            Files.deleteIfExists(to);
+        }
+    }
+
+    @Test
+    public
+    void chunks() {
+        var buff = new ByteArrayOutputStream();
+        var sizes = new ArrayList<Integer>();
+        Assert.assertEquals(in.chunks(10, v -> {
+            sizes.add(v.remaining());
+            buff.write(v.array(), v.arrayOffset() + v.position(), v.remaining());
+        }), testdata.length() * 2L);
+
+        Assert.assertEquals(new String(buff.toByteArray(), OPC.CHARSET), testdata + testdata);
+        Assert.assertEquals(sizes.get(0), Integer.valueOf(10));
+        Assert.assertEquals(sizes.size(), (testdata.length() * 2 + 9) / 10);
+    }
+
+    @Test
+    public
+    void charChunks() {
+        var buff = new StringBuilder();
+        in.filtrerChars(String::toUpperCase);
+        Assert.assertEquals(in.charChunks(7, buff::append), testdata.length() * 2L);
+        Assert.assertEquals(buff.toString(), (testdata + testdata).toUpperCase());
+    }
+
+    @Test
+    public
+    void pipeline() {
+        var threads = new CopyOnWriteArrayList<Thread>();
+        var buff = new ByteArrayOutputStream();
+        in.pipeline(true).filtrerBytes(v -> {
+            threads.add(Thread.currentThread());
+            return new String(v, OPC.CHARSET).toUpperCase().getBytes(OPC.CHARSET);
+        }, v -> new String(v, OPC.CHARSET).replace('J', '-').getBytes(OPC.CHARSET));
+
+        Assert.assertEquals(in.chunks(5, v -> buff.write(v.array(), v.arrayOffset() + v.position(), v.remaining())),
+                            testdata.length() * 2L);
+        Assert.assertEquals(new String(buff.toByteArray(), OPC.CHARSET),
+                            (testdata + testdata).toUpperCase().replace('J', '-'));
+        Assert.assertNotSame(threads.get(0), Thread.currentThread());
+    }
+
+    @Test
+    public
+    void parallel() {
+        // 三个流同时读取时才能通过
+        var start = new CountDownLatch(3);
+        var wait = new AtomicInteger();
+        var all = IOT.R(gate("a", start, wait)).append(gate("b", start, wait)).append(gate("c", start, wait))
+                     .sync()
+                     .parallel(3);
+
+        Assert.assertEquals(new String(all.bytes(), OPC.CHARSET), "abc");
+        Assert.assertEquals(wait.get(), 0);
+        all.close();
+    }
+
+    // 等待所有流开始读取后返回数据
+    static
+    InputStream gate(String data, CountDownLatch start, AtomicInteger timeout) {
+        return new ByteArrayInputStream(data.getBytes()) {
+            private boolean first = true;
+
+            @Override
+            public synchronized
+            int read(byte[] b, int off, int len) {
+                if (first) {
+                    first = false;
+                    start.countDown();
+                    try {
+                        if (!start.await(2, TimeUnit.SECONDS))
+                            timeout.incrementAndGet();
+                    } catch ( InterruptedException ignored ) {
+                    }
+                }
+                return super.read(b, off, len);
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package fybug.nulll.pdstream.strem.io.uilt;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import fybug.nulll.pdstream.OPC;
+import fybug.nulll.pdstream.strem.IOT;
+
+import static fybug.nulll.pdstream.RunTest.testdata;
+
+public
+class SyncMapTest {
+    private Path file;
+    private SyncMap in;
+
+    @Before
+    public
+    void befo() throws IOException {
+        file = Files.createTempFile("pdstream", ".map");
+        Files.writeString(file, testdata, OPC.CHARSET);
+        in = IOT.RM(file);
+    }
+
+    @After
+    public
+    void tearDown() throws IOException {
+        in.close();
+        OPC.MAP_CHUNK_SIZE = Integer.MAX_VALUE;
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public
+    void bytes() {
+        Assert.assertEquals(in.size(), testdata.length());
+        Assert.assertEquals(new String(in.bytes(), OPC.CHARSET), testdata);
+        Assert.assertEquals(in.chars(), testdata);
+    }
+
+    @Test
+    public
+    void chunk() {
+        OPC.MAP_CHUNK_SIZE = 5;
+        var buffers = in.buffers();
+        Assert.assertEquals(buffers.size(), (testdata.length() + 4) / 5);
+        Assert.assertTrue(buffers.get(0).isReadOnly());
+
+        var buff = in.buffer(3, 6);
+        var data = new byte[buff.remaining()];
+        buff.get(data);
+        Assert.assertEquals(new String(data, OPC.CHARSET), testdata.substring(3, 9));
+        Assert.assertNull(in.buffer(testdata.length() - 1, 2));
+    }
+
+    @Test
+    public
+    void fail() {
+        try ( var map = IOT.RM(file.resolveSibling("pdstream-none.map")) ) {
+            Assert.assertNull(map.buffers());
+            Assert.assertNull(map.bytes());
+        }
+    }
+}
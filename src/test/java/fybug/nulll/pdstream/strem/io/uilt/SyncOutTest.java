@@ -44,4 +44,18 @@ class SyncOutTest {
     @Test
     public
     void echoData() { out.echoData(); }
+
+    @Test
+    public
+    void parallel() {
+        var other = new ByteArrayOutputStream();
+        out.close();
+        out = IOT.O(bytestream).append(charstream).append(other).sync().parallel(true);
+
+        Assert.assertTrue(out.bytes(testdata.getBytes()));
+        // 每个流都收到完整的数据
+        Assert.assertArrayEquals(bytestream.toByteArray(), testdata.getBytes());
+        Assert.assertEquals(charstream.toString(), testdata);
+        Assert.assertArrayEquals(other.toByteArray(), testdata.getBytes());
+    }
 }
\ No newline at end of file